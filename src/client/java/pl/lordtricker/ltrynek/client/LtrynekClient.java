@@ -2,11 +2,17 @@ package pl.lordtricker.ltrynek.client;
 
 import pl.lordtricker.ltrynek.client.command.ClientCommandRegistration;
 import pl.lordtricker.ltrynek.client.config.ConfigLoader;
-import pl.lordtricker.ltrynek.client.config.PriceEntry;
+import pl.lordtricker.ltrynek.client.config.ConfigSaver;
+import pl.lordtricker.ltrynek.client.config.ConfigWatcher;
+import pl.lordtricker.ltrynek.client.config.ProfileLoader;
 import pl.lordtricker.ltrynek.client.config.ServerEntry;
+import pl.lordtricker.ltrynek.client.config.ServerRegistry;
 import pl.lordtricker.ltrynek.client.config.ServersConfig;
+import pl.lordtricker.ltrynek.client.manager.ClientHistoryManager;
 import pl.lordtricker.ltrynek.client.manager.ClientPriceListManager;
+import pl.lordtricker.ltrynek.client.manager.ClientProfileManager;
 import pl.lordtricker.ltrynek.client.keybinding.ToggleScanner;
+import pl.lordtricker.ltrynek.client.scheduler.TickScheduler;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.minecraft.client.MinecraftClient;
@@ -21,23 +27,27 @@ public class LtrynekClient implements ClientModInitializer {
 	@Override
 	public void onInitializeClient() {
 		ToggleScanner.init();
+		TickScheduler.init();
 
 		serversConfig = ConfigLoader.loadConfig();
-
-		for (ServerEntry entry : serversConfig.servers) {
-			ClientPriceListManager.setActiveProfile(entry.profileName);
-			for (PriceEntry pe : entry.prices) {
-				ClientPriceListManager.addPriceEntry(pe);
-			}
+		ClientProfileManager.rebuild(serversConfig);
+		ServerRegistry.rebuild(serversConfig);
+		ClientHistoryManager.init(serversConfig);
+		ConfigSaver.init();
+		if (serversConfig.watchConfigFiles) {
+			ConfigWatcher.start(ConfigLoader.getModConfigDir());
 		}
 
+		ProfileLoader.loadAll(serversConfig);
 		ClientPriceListManager.setActiveProfile(serversConfig.defaultProfile);
 
 		ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
-			String address = getServerAddress();
-			ServerEntry entry = findServerEntry(address);
+			ServerRegistry.resetConnection();
+			ProfileLoader.awaitMetadata();
+			ServerEntry entry = ServerRegistry.currentServer();
 			if (entry != null) {
 				ClientPriceListManager.setActiveProfile(entry.profileName);
+				ProfileLoader.prioritize(entry.profileName);
 				if (client.player != null) {
 					String welcomeMsg = Messages.format("player.join", Map.of("profile", entry.profileName));
 					client.player.sendMessage(ColorUtils.translateColorCodes(welcomeMsg), false);
@@ -45,12 +55,14 @@ public class LtrynekClient implements ClientModInitializer {
 			} else {
 				String def = serversConfig.defaultProfile;
 				ClientPriceListManager.setActiveProfile(def);
+				ProfileLoader.prioritize(def);
 				if (client.player != null) {
 					String welcomeMsg = Messages.format("player.join", Map.of("profile", def));
 					client.player.sendMessage(ColorUtils.translateColorCodes(welcomeMsg), false);
 				}
 			}
 		});
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> ServerRegistry.resetConnection());
 
 		ClientCommandRegistration.registerCommands();
 	}
@@ -61,16 +73,4 @@ public class LtrynekClient implements ClientModInitializer {
 		}
 		return "singleplayer";
 	}
-
-	public static ServerEntry findServerEntry(String address) {
-		for (ServerEntry entry : serversConfig.servers) {
-			for (String domain : entry.domains) {
-				if (address.equalsIgnoreCase(domain) ||
-						address.toLowerCase().endsWith("." + domain.toLowerCase())) {
-					return entry;
-				}
-			}
-		}
-		return null;
-	}
 }
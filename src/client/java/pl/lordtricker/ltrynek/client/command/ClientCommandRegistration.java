@@ -3,19 +3,29 @@ package pl.lordtricker.ltrynek.client.command;
 import pl.lordtricker.ltrynek.client.keybinding.ToggleScanner;
 import pl.lordtricker.ltrynek.client.util.ColorUtils;
 import pl.lordtricker.ltrynek.client.LtrynekClient;
-import pl.lordtricker.ltrynek.client.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
 import pl.lordtricker.ltrynek.client.util.Messages;
 import pl.lordtricker.ltrynek.client.config.ConfigLoader;
-import pl.lordtricker.ltrynek.client.config.PriceEntry;
+import pl.lordtricker.ltrynek.client.config.ConfigSaver;
+import pl.lordtricker.ltrynek.client.config.PriceListTransfer;
+import pl.lordtricker.ltrynek.client.config.ProfileLoader;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
 import pl.lordtricker.ltrynek.client.config.ServerEntry;
+import pl.lordtricker.ltrynek.client.config.ServerRegistry;
+import pl.lordtricker.ltrynek.client.manager.ClientHistoryManager;
 import pl.lordtricker.ltrynek.client.manager.ClientPriceListManager;
+import pl.lordtricker.ltrynek.client.manager.ClientProfileManager;
 import pl.lordtricker.ltrynek.client.manager.ClientSearchListManager;
-import pl.lordtricker.ltrynek.client.util.PriceFormatter;
+import pl.lordtricker.ltrynek.client.manager.ProfileSnapshot;
+import pl.lordtricker.ltrynek.core.history.RollupSummary;
+import pl.lordtricker.ltrynek.core.util.PriceFormatter;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.command.CommandRegistryAccess;
 import net.minecraft.text.ClickEvent;
 import net.minecraft.text.HoverEvent;
@@ -23,11 +33,11 @@ import net.minecraft.text.MutableText;
 import net.minecraft.text.Style;
 import net.minecraft.text.Text;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
-import static pl.lordtricker.ltrynek.client.config.ConfigLoader.saveAllConfigs;
-
 public class ClientCommandRegistration {
 
     public static void registerCommands() {
@@ -94,6 +104,7 @@ public class ClientCommandRegistration {
                                         .executes(ctx -> {
                                             String profile = StringArgumentType.getString(ctx, "profile");
                                             ClientPriceListManager.setActiveProfile(profile);
+                                            ProfileLoader.prioritize(profile);
                                             String msg = Messages.format("command.profile.change", Map.of("profile", profile));
                                             ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
                                             return 1;
@@ -122,7 +133,7 @@ public class ClientCommandRegistration {
                                                 })
                                                 .executes(ctx -> {
                                                     String maxPriceStr = StringArgumentType.getString(ctx, "maxPrice");
-                                                    double parsedPrice = PriceFormatter.parsePrice(maxPriceStr);
+                                                    long parsedPrice = PriceFormatter.parsePrice(maxPriceStr);
 
                                                     if (parsedPrice < 0) {
                                                         ctx.getSource().sendError(Text.literal("Invalid price format: " + maxPriceStr));
@@ -130,9 +141,11 @@ public class ClientCommandRegistration {
                                                     }
 
                                                     String fullItemName = StringArgumentType.getString(ctx, "itemName");
+                                                    ProfileLoader.awaitLoaded(ClientPriceListManager.getActiveProfile());
                                                     ClientPriceListManager.addPriceEntry(fullItemName, parsedPrice);
 
                                                     String activeProfile = ClientPriceListManager.getActiveProfile();
+                                                    ConfigSaver.markProfileDirty(activeProfile);
                                                     String friendly = CompositeKeyUtil.getFriendlyName(
                                                             CompositeKeyUtil.createCompositeKey(fullItemName));
                                                     String shortPrice = PriceFormatter.formatPrice(parsedPrice);
@@ -155,7 +168,9 @@ public class ClientCommandRegistration {
                                         .executes(ctx -> {
                                             String rawItem = StringArgumentType.getString(ctx, "itemName");
                                             String activeProfile = ClientPriceListManager.getActiveProfile();
+                                            ProfileLoader.awaitLoaded(activeProfile);
                                             ClientPriceListManager.removePriceEntry(rawItem);
+                                            ConfigSaver.markProfileDirty(activeProfile);
                                             String friendly = CompositeKeyUtil.getFriendlyName(
                                                     CompositeKeyUtil.createCompositeKey(rawItem));
                                             String msg = Messages.format("command.remove.success", Map.of(
@@ -171,11 +186,12 @@ public class ClientCommandRegistration {
                         .then(ClientCommandManager.literal("list")
                                 .executes(ctx -> {
                                     String activeProfile = ClientPriceListManager.getActiveProfile();
-                                    List<PriceEntry> entries = ClientPriceListManager.getAllProfiles().get(activeProfile);
+                                    ProfileLoader.awaitLoaded(activeProfile);
+                                    ProfileSnapshot snapshot = ClientPriceListManager.getSnapshot(activeProfile);
                                     MutableText finalText = Text.empty();
 
-                                    if (entries != null) {
-                                        for (PriceEntry pe : entries) {
+                                    if (snapshot != null) {
+                                        for (PriceEntry pe : snapshot.entries) {
                                             String compositeKey = CompositeKeyUtil.getCompositeKeyFromEntry(pe);
                                             String friendlyName = CompositeKeyUtil.getFriendlyName(compositeKey);
                                             String priceStr = PriceFormatter.formatPrice(pe.maxPrice);
@@ -219,7 +235,79 @@ public class ClientCommandRegistration {
                                     return 1;
                                 })
                         )
-
+                        // /ltr import <plik>
+                        .then(ClientCommandManager.literal("import")
+                                .then(ClientCommandManager.argument("file", StringArgumentType.greedyString())
+                                        .suggests((context, builder) -> {
+                                            String remaining = builder.getRemaining().toLowerCase();
+                                            for (String fileName : PriceListTransfer.listFiles()) {
+                                                if (fileName.toLowerCase().startsWith(remaining)) {
+                                                    builder.suggest(fileName);
+                                                }
+                                            }
+                                            return builder.buildFuture();
+                                        })
+                                        .executes(ctx -> {
+                                            String fileName = StringArgumentType.getString(ctx, "file");
+                                            String activeProfile = ClientPriceListManager.getActiveProfile();
+                                            Path file = resolveTransferFile(ctx.getSource(), fileName);
+                                            if (file == null) return 0;
+                                            // plik czytamy w tle, do listy trafia jedną partią w wątku klienta
+                                            Thread.ofVirtual().name("LT-Rynek import").start(() -> {
+                                                try {
+                                                    PriceListTransfer.ImportResult result = PriceListTransfer.read(file);
+                                                    MinecraftClient.getInstance().execute(() -> {
+                                                        ProfileLoader.awaitLoaded(activeProfile);
+                                                        int added = ClientPriceListManager.addPriceEntries(activeProfile, result.entries);
+                                                        ConfigSaver.markProfileDirty(activeProfile);
+                                                        String msg = Messages.format("command.import.success", Map.of(
+                                                                "file", fileName,
+                                                                "profile", activeProfile,
+                                                                "count", String.valueOf(result.entries.size()),
+                                                                "added", String.valueOf(added),
+                                                                "skipped", String.valueOf(result.skipped)
+                                                        ));
+                                                        ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
+                                                    });
+                                                } catch (IOException e) {
+                                                    sendTransferError(ctx.getSource(), "command.import.error", fileName, e.getMessage());
+                                                }
+                                            });
+                                            return 1;
+                                        })
+                                )
+                        )
+                        // /ltr export <plik>
+                        .then(ClientCommandManager.literal("export")
+                                .then(ClientCommandManager.argument("file", StringArgumentType.greedyString())
+                                        .executes(ctx -> {
+                                            String fileName = StringArgumentType.getString(ctx, "file");
+                                            String activeProfile = ClientPriceListManager.getActiveProfile();
+                                            Path file = resolveTransferFile(ctx.getSource(), fileName);
+                                            if (file == null) return 0;
+                                            ProfileLoader.awaitLoaded(activeProfile);
+                                            ProfileSnapshot snapshot = ClientPriceListManager.getSnapshot(activeProfile);
+                                            // snapshot jest niezmienny – wątek w tle czyta go bez kopiowania
+                                            List<PriceEntry> entries = snapshot == null ? List.of() : snapshot.entries;
+                                            Thread.ofVirtual().name("LT-Rynek export").start(() -> {
+                                                try {
+                                                    PriceListTransfer.write(file, entries);
+                                                    MinecraftClient.getInstance().execute(() -> {
+                                                        String msg = Messages.format("command.export.success", Map.of(
+                                                                "file", fileName,
+                                                                "profile", activeProfile,
+                                                                "count", String.valueOf(entries.size())
+                                                        ));
+                                                        ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
+                                                    });
+                                                } catch (IOException e) {
+                                                    sendTransferError(ctx.getSource(), "command.export.error", fileName, e.getMessage());
+                                                }
+                                            });
+                                            return 1;
+                                        })
+                                )
+                        )
 
                         .then(ClientCommandManager.literal("pomoc")
                                 .executes(ctx -> {
@@ -231,8 +319,7 @@ public class ClientCommandRegistration {
                         .then(ClientCommandManager.literal("config")
                                 .then(ClientCommandManager.literal("save")
                                         .executes(ctx -> {
-                                            syncMemoryToConfig();
-                                            saveAllConfigs(LtrynekClient.serversConfig);
+                                            ConfigSaver.saveAllNow();
                                             String msg = Messages.get("command.config.save.success");
                                             ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
                                             return 1;
@@ -240,7 +327,10 @@ public class ClientCommandRegistration {
                                 )
                                 .then(ClientCommandManager.literal("reload")
                                         .executes(ctx -> {
+                                            ConfigSaver.flushAndWait();
                                             LtrynekClient.serversConfig = ConfigLoader.loadConfig();
+                                            ClientProfileManager.rebuild(LtrynekClient.serversConfig);
+                                            ServerRegistry.rebuild(LtrynekClient.serversConfig);
                                             ClientPriceListManager.clearAllProfiles();
                                             reinitProfilesFromConfig();
                                             String msg = Messages.get("command.config.reload.success");
@@ -259,6 +349,7 @@ public class ClientCommandRegistration {
                                 .then(ClientCommandManager.literal("on")
                                         .executes(ctx -> {
                                             LtrynekClient.serversConfig.soundsEnabled = true;
+                                            ConfigSaver.markMainDirty();
                                             String msg = Messages.get("command.sounds.enabled");
                                             ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
                                             return 1;
@@ -267,6 +358,7 @@ public class ClientCommandRegistration {
                                 .then(ClientCommandManager.literal("off")
                                         .executes(ctx -> {
                                             LtrynekClient.serversConfig.soundsEnabled = false;
+                                            ConfigSaver.markMainDirty();
                                             String msg = Messages.get("command.sounds.disabled");
                                             ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
                                             return 1;
@@ -390,81 +482,75 @@ public class ClientCommandRegistration {
                                 )
 
                         )
+                        .then(ClientCommandManager.literal("history")
+                                .then(ClientCommandManager.argument("days", IntegerArgumentType.integer(1, 3650))
+                                        .then(ClientCommandManager.argument("item", StringArgumentType.greedyString())
+                                                .executes(ctx -> {
+                                                    int days = IntegerArgumentType.getInteger(ctx, "days");
+                                                    String rawItem = StringArgumentType.getString(ctx, "item");
+                                                    String compositeKey = CompositeKeyUtil.createCompositeKey(rawItem);
+                                                    String profile = ClientPriceListManager.getActiveProfile();
+                                                    String friendly = CompositeKeyUtil.getFriendlyName(compositeKey);
+                                                    RollupSummary summary = ClientHistoryManager.summarize(profile, compositeKey, days);
+                                                    if (summary == null) {
+                                                        String msg = Messages.format("command.history.empty", Map.of(
+                                                                "item", friendly, "profile", profile, "days", String.valueOf(days)));
+                                                        ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
+                                                        return 1;
+                                                    }
+                                                    String msg = Messages.format("command.history.summary", Map.ofEntries(
+                                                            Map.entry("item", friendly),
+                                                            Map.entry("profile", profile),
+                                                            Map.entry("days", String.valueOf(days)),
+                                                            Map.entry("count", String.valueOf(summary.listings)),
+                                                            Map.entry("volume", String.valueOf(summary.volume)),
+                                                            Map.entry("open", PriceFormatter.formatPrice(summary.open)),
+                                                            Map.entry("close", PriceFormatter.formatPrice(summary.close)),
+                                                            Map.entry("min", PriceFormatter.formatPrice(summary.low)),
+                                                            Map.entry("max", PriceFormatter.formatPrice(summary.high)),
+                                                            Map.entry("median", PriceFormatter.formatPrice(summary.median)),
+                                                            Map.entry("quartile1", PriceFormatter.formatPrice(summary.quartile1)),
+                                                            Map.entry("quartile3", PriceFormatter.formatPrice(summary.quartile3))
+                                                    ));
+                                                    ctx.getSource().sendFeedback(ColorUtils.translateColorCodes(msg));
+                                                    return 1;
+                                                })
+                                        )
+                                )
+                        )
         );
     }
 
-    private static void syncMemoryToConfig() {
-        Map<String, List<PriceEntry>> allProfiles = ClientPriceListManager.getAllProfiles();
-        for (Map.Entry<String, List<PriceEntry>> profEntry : allProfiles.entrySet()) {
-            String profileName = profEntry.getKey();
-            List<PriceEntry> priceEntries = profEntry.getValue();
-            ServerEntry se = findServerEntryByProfile(profileName);
-            if (se == null) continue;
-            for (PriceEntry storedPe : priceEntries) {
-                boolean exists = se.prices.stream().anyMatch(pe -> pe.name.equals(storedPe.name));
-                if (!exists) {
-                    PriceEntry pe = new PriceEntry();
-                    pe.name = storedPe.name;
-                    pe.maxPrice = storedPe.maxPrice;
-                    pe.lore = storedPe.lore;
-                    pe.material = storedPe.material;
-                    pe.enchants = storedPe.enchants;
-                    se.prices.add(pe);
-                }
-            }
+    /**
+     * Plik importu/eksportu w katalogu list albo null (błąd jest wysyłany do gracza).
+     */
+    private static Path resolveTransferFile(FabricClientCommandSource source, String fileName) {
+        try {
+            return PriceListTransfer.resolve(fileName);
+        } catch (IllegalArgumentException | IOException e) {
+            String msg = Messages.format("command.transfer.invalid", Map.of("file", fileName, "error", String.valueOf(e.getMessage())));
+            source.sendError(ColorUtils.translateColorCodes(msg));
+            return null;
         }
-        saveAllConfigs(LtrynekClient.serversConfig);
+    }
+
+    private static void sendTransferError(FabricClientCommandSource source, String key, String fileName, String error) {
+        MinecraftClient.getInstance().execute(() -> {
+            String msg = Messages.format(key, Map.of("file", fileName, "error", String.valueOf(error)));
+            source.sendError(ColorUtils.translateColorCodes(msg));
+        });
     }
 
     private static void reinitProfilesFromConfig() {
-        for (ServerEntry entry : LtrynekClient.serversConfig.servers) {
-            ClientPriceListManager.setActiveProfile(entry.profileName);
-            for (PriceEntry pe : entry.prices) {
-                String rawItem = pe.name;
-                if (pe.lore != null && !pe.lore.isEmpty()) {
-                    rawItem += "(\"" + pe.lore + "\")";
-                }
-                if (pe.material != null && !pe.material.isEmpty()) {
-                    rawItem += "[\"" + pe.material + "\"]";
-                }
-                if (pe.enchants != null && !pe.enchants.isEmpty()) {
-                    rawItem += "{\"" + pe.enchants + "\"}";
-                }
-                ClientPriceListManager.addPriceEntry(rawItem, pe.maxPrice);
-            }
-        }
+        ProfileLoader.loadAll(LtrynekClient.serversConfig);
+        ProfileLoader.awaitMetadata();
 
-        String address = LtrynekClient.getServerAddress();
-        ServerEntry serverEntry = findServerEntryByAddress(address);
+        ServerEntry serverEntry = ServerRegistry.currentServer();
         if (serverEntry != null) {
             ClientPriceListManager.setActiveProfile(serverEntry.profileName);
         } else {
             ClientPriceListManager.setActiveProfile(LtrynekClient.serversConfig.defaultProfile);
         }
-    }
-
-    private static ServerEntry findServerEntryByAddress(String address) {
-        if (LtrynekClient.serversConfig == null || LtrynekClient.serversConfig.servers == null)
-            return null;
-        for (ServerEntry entry : LtrynekClient.serversConfig.servers) {
-            for (String domain : entry.domains) {
-                if (address.equalsIgnoreCase(domain) ||
-                        address.toLowerCase().endsWith("." + domain.toLowerCase())) {
-                    return entry;
-                }
-            }
-        }
-        return null;
-    }
-
-    private static ServerEntry findServerEntryByProfile(String profileName) {
-        if (LtrynekClient.serversConfig == null || LtrynekClient.serversConfig.servers == null)
-            return null;
-        for (ServerEntry entry : LtrynekClient.serversConfig.servers) {
-            if (entry.profileName.equalsIgnoreCase(profileName)) {
-                return entry;
-            }
-        }
-        return null;
+        ProfileLoader.prioritize(ClientPriceListManager.getActiveProfile());
     }
 }
@@ -0,0 +1,41 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import net.minecraft.registry.Registries;
+import net.minecraft.sound.SoundEvent;
+import net.minecraft.util.Identifier;
+import pl.lordtricker.ltrynek.core.scanner.ScanRules;
+
+/**
+ * Niezmienna, "skompilowana" wersja ServerEntry używana przez skaner:
+ * reguły oceny ofert (gotowy Pattern z loreRegex, kolory w ARGB) i rozwiązane dźwięki alarmów.
+ * Budowana raz przy ładowaniu configu (i przy /ltr config reload).
+ */
+public class CompiledProfile {
+    public final String profileName;
+    public final ScanRules rules;
+    /** null, jeśli dźwięk jest pusty albo nie istnieje w rejestrze. */
+    public final SoundEvent miniAlarmSound;
+    public final SoundEvent miniAlarmSoundStack;
+
+    private CompiledProfile(ServerEntry entry) {
+        this.profileName = entry.profileName;
+        this.rules = ScanRules.compile(entry.profileName, entry.loreRegex, entry.highlightColor, entry.highlightColorStack);
+        this.miniAlarmSound = resolveSound(entry.miniAlarmSound);
+        this.miniAlarmSoundStack = resolveSound(entry.miniAlarmSoundStack);
+    }
+
+    public static CompiledProfile compile(ServerEntry entry) {
+        return new CompiledProfile(entry);
+    }
+
+    private static SoundEvent resolveSound(String soundId) {
+        if (soundId == null || soundId.isEmpty()) {
+            return null;
+        }
+        Identifier id = Identifier.tryParse(soundId);
+        if (id == null) {
+            return null;
+        }
+        return Registries.SOUND_EVENT.get(id);
+    }
+}
@@ -2,19 +2,36 @@ package pl.lordtricker.ltrynek.client.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import net.fabricmc.loader.api.FabricLoader;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.Writer;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ConfigLoader {
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson GSON = new GsonBuilder()
+            .setPrettyPrinting()
+            .registerTypeAdapter(PriceEntry.class, new PriceEntryAdapter())
+            .create();
     private static final String MAIN_CONFIG_FILE_NAME = "ltrynek-config.json";
     private static final Path MOD_CONFIG_DIR;
+    private static final Type STRING_LIST_TYPE = new TypeToken<List<String>>() {}.getType();
+    /** Hash ostatnio zapisanej treści każdego pliku – zapisy moda nie wyzwalają przeładowania. */
+    private static final Map<Path, Integer> lastWrittenHashes = new ConcurrentHashMap<>();
 
     static {
         Path configDir = FabricLoader.getInstance().getConfigDir();
@@ -28,199 +45,368 @@ public class ConfigLoader {
         }
     }
 
+    /**
+     * Katalog modu w configu gry (config/LT-Mods/LT-Rynek).
+     */
+    public static Path getModConfigDir() {
+        return MOD_CONFIG_DIR;
+    }
+
+    /**
+     * Wczytuje główny plik. Mini configi (metadane i listy cen) ładuje w tle ProfileLoader.
+     */
     public static ServersConfig loadConfig() {
         Path mainConfigFile = MOD_CONFIG_DIR.resolve(MAIN_CONFIG_FILE_NAME);
         ServersConfig config;
         if (!Files.exists(mainConfigFile)) {
-            config = createDefaultConfig();
+            config = DefaultServers.create();
             saveAllConfigs(config);
         } else {
             try (Reader reader = Files.newBufferedReader(mainConfigFile)) {
                 config = GSON.fromJson(reader, ServersConfig.class);
                 if (config == null) {
-                    config = createDefaultConfig();
+                    config = DefaultServers.create();
                 }
             } catch (IOException e) {
                 e.printStackTrace();
-                config = createDefaultConfig();
+                config = DefaultServers.create();
             }
         }
+        return config;
+    }
 
+    /**
+     * Pliki mini configów w katalogu moda (wszystkie *.json poza głównym).
+     */
+    static List<Path> listMiniConfigs() {
+        List<Path> files = new ArrayList<>();
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(MOD_CONFIG_DIR, "*.json")) {
             for (Path entry : stream) {
-                if (entry.getFileName().toString().equals(MAIN_CONFIG_FILE_NAME)) {
-                    continue;
+                if (!isMainConfigFile(entry)) {
+                    files.add(entry);
                 }
-                try (Reader miniReader = Files.newBufferedReader(entry)) {
-                    ServerEntry miniServer = GSON.fromJson(miniReader, ServerEntry.class);
-                    if (miniServer == null) {
-                        System.err.println("Mini config " + entry.getFileName() + " jest niepoprawny – nie udało się sparsować JSON.");
-                        continue;
-                    }
-                    if (miniServer.domains == null || miniServer.domains.isEmpty()) {
-                        System.err.println("Mini config " + entry.getFileName() + " jest niepoprawny – brak wymaganych domen.");
-                        continue;
-                    }
-                    String fileName = entry.getFileName().toString();
-                    String profileNameFromFile = fileName.substring(0, fileName.lastIndexOf('.'));
-                    miniServer.profileName = profileNameFromFile;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return files;
+    }
 
-                    if (miniServer.prices == null) {
-                        miniServer.prices = new ArrayList<>();
-                    }
-                    if (miniServer.loreRegex == null) {
-                        miniServer.loreRegex = "Cena: (\\d+)";
-                    }
-                    if (miniServer.highlightColor == null) {
-                        miniServer.highlightColor = "#80FF00";
-                    }
-                    if (miniServer.highlightColorStack == null) {
-                        miniServer.highlightColorStack = "#FF8000";
-                    }
-                    if (miniServer.miniAlarmSound == null) {
-                        miniServer.miniAlarmSound = "minecraft:ui.button.click";
-                    }
-                    if (miniServer.miniAlarmSoundStack == null) {
-                        miniServer.miniAlarmSoundStack = "minecraft:entity.player.levelup";
-                    }
+    /**
+     * Nazwa profilu mini configu – nazwa pliku bez rozszerzenia.
+     */
+    static String profileNameOf(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.lastIndexOf('.'));
+    }
+
+    public static boolean isMainConfigFile(Path file) {
+        return file.getFileName().toString().equals(MAIN_CONFIG_FILE_NAME);
+    }
 
-                    config.servers.removeIf(se -> se.profileName.equalsIgnoreCase(miniServer.profileName));
+    /**
+     * Wczytuje mini config (profil = nazwa pliku) i uzupełnia brakujące pola domyślnymi.
+     * Lista cen jest czytana strumieniowo prosto do prices – wpisy, których nie da się
+     * odczytać, są pomijane z podaniem pozycji. Strumień jest zamykany. Zwraca null,
+     * jeśli plik jest niepoprawny.
+     */
+    static ServerEntry readMiniConfig(Path entry, InputStream json, ProfilePrices prices) {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(json, StandardCharsets.UTF_8))) {
+            ServerEntry miniServer = parseMiniConfig(entry, readMiniConfig(entry, reader, prices));
+            if (miniServer != null) {
+                miniServer.prices = prices.entries();
+            }
+            return miniServer;
+        } catch (Exception ex) {
+            System.err.println("Błąd podczas ładowania mini configu " + entry.getFileName() + ": " + ex.getMessage());
+            return null;
+        }
+    }
 
-                    miniServer.sourceFile = entry;
+    /**
+     * Czyta z mini configu wszystko oprócz listy cen – z aktualnego snapshotu albo z JSON-a,
+     * w którym tablica "prices" jest tylko przewijana (JsonReader.skipValue), bez tworzenia obiektów.
+     * Wpis ma pricesLoaded = false.
+     */
+    static ServerEntry readMiniConfigMetadata(Path entry) {
+        ConfigSnapshot snapshot = ConfigSnapshot.read(entry, false);
+        if (snapshot != null) {
+            snapshot.refreshMtime();
+            snapshot.entry.pricesLoaded = false;
+            return snapshot.entry;
+        }
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(entry))) {
+            ServerEntry miniServer = parseMiniConfig(entry, readMiniConfig(entry, reader, null));
+            if (miniServer != null) {
+                miniServer.pricesLoaded = false;
+            }
+            return miniServer;
+        } catch (Exception ex) {
+            System.err.println("Błąd podczas ładowania mini configu " + entry.getFileName() + ": " + ex.getMessage());
+            return null;
+        }
+    }
 
-                    config.servers.add(miniServer);
-                } catch (Exception ex) {
-                    System.err.println("Błąd podczas ładowania mini configu " + entry.getFileName() + ": " + ex.getMessage());
+    /**
+     * Pola obiektu mini configu; przy prices = null tablica cen jest pomijana.
+     */
+    private static ServerEntry readMiniConfig(Path entry, JsonReader reader, ProfilePrices prices) throws IOException {
+        ServerEntry miniServer = new ServerEntry();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "domains" -> miniServer.domains = GSON.fromJson(reader, STRING_LIST_TYPE);
+                case "loreRegex" -> miniServer.loreRegex = GSON.fromJson(reader, String.class);
+                case "highlightColor" -> miniServer.highlightColor = GSON.fromJson(reader, String.class);
+                case "highlightColorStack" -> miniServer.highlightColorStack = GSON.fromJson(reader, String.class);
+                case "miniAlarmSound" -> miniServer.miniAlarmSound = GSON.fromJson(reader, String.class);
+                case "miniAlarmSoundStack" -> miniServer.miniAlarmSoundStack = GSON.fromJson(reader, String.class);
+                case "prices" -> {
+                    if (prices != null && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        readPrices(entry, reader, prices);
+                    } else {
+                        reader.skipValue();
+                    }
                 }
+                default -> reader.skipValue();
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
-        return config;
+        reader.endObject();
+        return miniServer;
+    }
+
+    /**
+     * Czyta tablicę cen wpis po wpisie. Błędny wpis (zły typ pola, brak nazwy i materiału)
+     * jest przewijany do końca i zgłaszany z pozycją w pliku; błąd składni JSON przerywa całość.
+     */
+    private static void readPrices(Path entry, JsonReader reader, ProfilePrices prices) throws IOException {
+        int skipped = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String position = reader.getPath();
+            PriceEntry pe = new PriceEntry();
+            String error = readPriceEntry(reader, pe);
+            if (error != null) {
+                reportInvalidPrice(entry, position, error);
+                skipped++;
+                continue;
+            }
+            prices.add(pe);
+        }
+        reader.endArray();
+        if (skipped > 0) {
+            System.err.println("Mini config " + entry.getFileName() + ": pominięto " + skipped + " błędnych wpisów cen.");
+        }
+    }
+
+    /**
+     * Czyta jeden obiekt wpisu ceny do pe. Zwraca opis błędu (wartość jest wtedy przewinięta
+     * w całości, więc można czytać dalej) albo null, jeśli wpis jest poprawny.
+     */
+    static String readPriceEntry(JsonReader reader, PriceEntry pe) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            String error = "oczekiwano obiektu, jest " + reader.peek();
+            reader.skipValue();
+            return error;
+        }
+        String rawPrice = null;
+        String error = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            try {
+                switch (field) {
+                    case "name" -> pe.name = nextNullableString(reader);
+                    case "lore" -> pe.lore = nextNullableString(reader);
+                    case "material" -> pe.material = nextNullableString(reader);
+                    case "enchants" -> pe.enchants = nextNullableString(reader);
+                    case "maxPrice" -> rawPrice = reader.nextString();
+                    default -> reader.skipValue();
+                }
+            } catch (IllegalStateException ex) {
+                // wartość nie została pobrana – przewijamy ją i czytamy dalej, żeby dojść do końca obiektu
+                if (error == null) {
+                    error = "pole " + field + ": " + ex.getMessage();
+                }
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (error == null && rawPrice != null) {
+            try {
+                pe.maxPrice = parsePrice(rawPrice);
+            } catch (NumberFormatException ex) {
+                error = "pole maxPrice: " + ex.getMessage();
+            }
+        }
+        return error != null ? error : validatePriceEntry(pe);
+    }
+
+    /**
+     * Uzupełnia brakującą nazwę pustą i sprawdza, czy wpis ma nazwę albo materiał.
+     * Zwraca opis błędu albo null.
+     */
+    static String validatePriceEntry(PriceEntry pe) {
+        if (pe.name == null) {
+            pe.name = "";
+        }
+        if (pe.name.isEmpty() && (pe.material == null || pe.material.isEmpty())) {
+            return "brak nazwy i materiału";
+        }
+        return null;
+    }
+
+    private static String nextNullableString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Cena w walucie serwera jako liczba JSON albo tekst z liczbą (tak jak przyjmował Gson), w groszach.
+     * Liczby JSON mogą mieć wykładnik (Gson zapisywał duże ceny jako 1.0E7), więc tu działa
+     * BigDecimal, a nie parser cen z lore. Bez NaN, nieskończoności i wartości spoza long.
+     */
+    static long parsePrice(String value) {
+        try {
+            return new BigDecimal(value.trim())
+                    .movePointRight(2)
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("niepoprawna cena " + value);
+        }
+    }
+
+    private static void reportInvalidPrice(Path entry, String position, String reason) {
+        System.err.println("Pomijam wpis " + position + " w " + entry.getFileName() + ": " + reason);
+    }
+
+    private static ServerEntry parseMiniConfig(Path entry, ServerEntry miniServer) {
+        if (miniServer == null) {
+            System.err.println("Mini config " + entry.getFileName() + " jest niepoprawny – nie udało się sparsować JSON.");
+            return null;
+        }
+        if (miniServer.domains == null || miniServer.domains.isEmpty()) {
+            System.err.println("Mini config " + entry.getFileName() + " jest niepoprawny – brak wymaganych domen.");
+            return null;
+        }
+        miniServer.profileName = profileNameOf(entry);
+
+        if (miniServer.prices == null) {
+            miniServer.prices = new ArrayList<>();
+        }
+        if (miniServer.loreRegex == null) {
+            miniServer.loreRegex = "Cena: (\\d+)";
+        }
+        if (miniServer.highlightColor == null) {
+            miniServer.highlightColor = "#80FF00";
+        }
+        if (miniServer.highlightColorStack == null) {
+            miniServer.highlightColorStack = "#FF8000";
+        }
+        if (miniServer.miniAlarmSound == null) {
+            miniServer.miniAlarmSound = "minecraft:ui.button.click";
+        }
+        if (miniServer.miniAlarmSoundStack == null) {
+            miniServer.miniAlarmSoundStack = "minecraft:entity.player.levelup";
+        }
+
+        miniServer.sourceFile = entry;
+        return miniServer;
+    }
+
+    /**
+     * Czy plik ma dokładnie tę treść, którą ostatnio zapisał mod (watcher pomija własne zapisy).
+     */
+    static boolean isOwnWrite(Path file, String content) {
+        Integer hash = lastWrittenHashes.get(file.toAbsolutePath().normalize());
+        return hash != null && hash == content.hashCode();
     }
 
     /**
      * Zapisuje konfigurację, rozdzielając dane:
      * - Wpisy bez mini configów trafiają do głównego pliku,
      * - Wpisy z mini configami są zapisywane do swoich plików.
+     * Zapis synchroniczny – w trakcie gry zmiany zapisuje ConfigSaver.
      */
     public static void saveAllConfigs(ServersConfig config) {
+        writeMainConfig(mainConfigOf(config, false));
+        for (ServerEntry entry : config.servers) {
+            // mini config z niewczytaną listą cen zostałby nadpisany pustą listą
+            if (entry.sourceFile != null && entry.pricesLoaded) {
+                writeMiniConfig(entry);
+            }
+        }
+    }
+
+    /**
+     * Zawartość głównego pliku: ustawienia i wpisy bez mini configów
+     * (przy copyEntries – kopie, które można serializować poza wątkiem klienta).
+     */
+    static ServersConfig mainConfigOf(ServersConfig config, boolean copyEntries) {
         List<ServerEntry> mainServers = new ArrayList<>();
         for (ServerEntry entry : config.servers) {
             if (entry.sourceFile == null) {
-                mainServers.add(entry);
+                mainServers.add(copyEntries ? entry.copy() : entry);
             }
         }
         ServersConfig mainConfig = new ServersConfig();
         mainConfig.defaultProfile = config.defaultProfile;
         mainConfig.soundsEnabled = config.soundsEnabled;
+        mainConfig.eventScanning = config.eventScanning;
+        mainConfig.searchDedupCapacity = config.searchDedupCapacity;
+        mainConfig.searchDedupTtlSeconds = config.searchDedupTtlSeconds;
+        mainConfig.searchDedupIncludeSlot = config.searchDedupIncludeSlot;
+        mainConfig.historyEnabled = config.historyEnabled;
+        mainConfig.historyRetentionDays = config.historyRetentionDays;
+        mainConfig.watchConfigFiles = config.watchConfigFiles;
         mainConfig.servers = mainServers;
+        return mainConfig;
+    }
 
-        Path mainConfigFile = MOD_CONFIG_DIR.resolve(MAIN_CONFIG_FILE_NAME);
-        try (Writer writer = Files.newBufferedWriter(mainConfigFile)) {
-            GSON.toJson(mainConfig, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    static void writeMainConfig(ServersConfig mainConfig) {
+        writeAtomically(MOD_CONFIG_DIR.resolve(MAIN_CONFIG_FILE_NAME), mainConfig);
+    }
 
-        for (ServerEntry entry : config.servers) {
-            if (entry.sourceFile != null) {
-                try (Writer writer = Files.newBufferedWriter(entry.sourceFile)) {
-                    GSON.toJson(entry, writer);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * Zapisuje mini config i od razu odświeża jego snapshot (z czasem modyfikacji
+     * odczytanym zaraz po podmianie pliku).
+     */
+    static void writeMiniConfig(ServerEntry entry) {
+        byte[] written = writeAtomically(entry.sourceFile, entry);
+        if (written == null) return;
+        try {
+            long mtime = ConfigSnapshot.modifiedTime(entry.sourceFile);
+            ConfigSnapshot.write(entry.sourceFile, entry, ConfigSnapshot.Source.of(written, mtime));
+        } catch (IOException e) {
+            System.err.println("Nie udało się zapisać snapshotu " + entry.sourceFile.getFileName() + ": " + e.getMessage());
         }
     }
 
     /**
-     * Tworzy domyślny config z przykładowymi wartościami.
-     */
-    private static ServersConfig createDefaultConfig() {
-        ServersConfig cfg = new ServersConfig();
-        cfg.defaultProfile = "default";
-
-        ServerEntry server1 = new ServerEntry();
-        server1.domains = List.of("minestar.pl");
-        server1.profileName = "minestar_boxpvp";
-        server1.loreRegex = "(?i).*Cena.*?\\$?([\\d.,]+(?:mld|[km])?).*";
-        server1.highlightColor = "#00FF33";
-        server1.highlightColorStack = "#FFAB00";
-        server1.miniAlarmSound = "minecraft:ui.button.click";
-        server1.miniAlarmSoundStack = "minecraft:ui.toast.challenge_complete";
-
-        PriceEntry pe1 = new PriceEntry();
-        pe1.name = "minecraft:gunpowder";
-        pe1.maxPrice = 100.0;
-        server1.prices.add(pe1);
-
-        cfg.servers.add(server1);
-
-        ServerEntry server2 = new ServerEntry();
-        server2.domains = List.of("anarchia.gg");
-        server2.profileName = "anarchia_smp";
-        server2.loreRegex = "(?i).*Koszt.*?\\$([\\d.,]+(?:mld|[km])?).*";
-        server2.highlightColor = "#00FF33";
-        server2.highlightColorStack = "#FFAB00";
-        server2.miniAlarmSound = "minecraft:ui.button.click";
-        server2.miniAlarmSoundStack = "minecraft:ui.toast.challenge_complete";
-
-        PriceEntry pe2 = new PriceEntry();
-        pe2.name = "minecraft:emerald";
-        pe2.maxPrice = 200.0;
-        server2.prices.add(pe2);
-
-        cfg.servers.add(server2);
-
-        ServerEntry server3 = new ServerEntry();
-        server3.domains = List.of("rapy.pl");
-        server3.profileName = "rapy";
-        server3.loreRegex = "(?i).*Cena.*?\\$?([\\d.,]+(?:mld|m|k)?).*";
-        server3.highlightColor = "#00FF33";
-        server3.highlightColorStack = "#FFAB00";
-        server3.miniAlarmSound = "minecraft:ui.button.click";
-        server3.miniAlarmSoundStack = "minecraft:ui.toast.challenge_complete";
-
-        PriceEntry pe3 = new PriceEntry();
-        pe3.name = "minecraft:emerald";
-        pe3.maxPrice = 200.0;
-        server3.prices.add(pe3);
-
-        cfg.servers.add(server3);
-
-        ServerEntry server4 = new ServerEntry();
-        server4.domains = List.of("pykmc.pl");
-        server4.profileName = "pykmc";
-        server4.loreRegex = "(?i).*Kwota.*?\\$([\\d.,]+(?:mld|m|k)?).*";
-        server4.highlightColor = "#00FF33";
-        server4.highlightColorStack = "#FFAB00";
-        server4.miniAlarmSound = "minecraft:ui.button.click";
-        server4.miniAlarmSoundStack = "minecraft:ui.toast.challenge_complete";
-
-        PriceEntry pe4 = new PriceEntry();
-        pe4.name = "minecraft:emerald";
-        pe4.maxPrice = 200.0;
-        server4.prices.add(pe4);
-
-        cfg.servers.add(server4);
-
-        ServerEntry server5 = new ServerEntry();
-        server5.domains = List.of("n1mc.pl");
-        server5.profileName = "n1mc";
-        server5.loreRegex = "(?i).*Cena.*?([\\d.,]+(?:mld|m|k)?)\\$.*";
-        server5.highlightColor = "#00FF33";
-        server5.highlightColorStack = "#FFAB00";
-        server5.miniAlarmSound = "minecraft:ui.button.click";
-        server5.miniAlarmSoundStack = "minecraft:ui.toast.challenge_complete";
-
-        PriceEntry pe5 = new PriceEntry();
-        pe5.name = "minecraft:emerald";
-        pe5.maxPrice = 200.0;
-        server5.prices.add(pe5);
-
-        cfg.servers.add(server5);
-
-        return cfg;
+     * Zapisuje JSON do pliku tymczasowego obok docelowego i podmienia go atomowo,
+     * więc przerwany zapis nigdy nie zostawia uciętego configu.
+     */
+    private static byte[] writeAtomically(Path file, Object content) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        String json = GSON.toJson(content);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        try {
+            Files.write(temp, bytes);
+            lastWrittenHashes.put(file.toAbsolutePath().normalize(), json.hashCode());
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return bytes;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 }
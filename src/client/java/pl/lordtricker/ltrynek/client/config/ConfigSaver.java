@@ -0,0 +1,188 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import pl.lordtricker.ltrynek.client.LtrynekClient;
+import pl.lordtricker.ltrynek.client.manager.ClientPriceListManager;
+import pl.lordtricker.ltrynek.client.manager.ProfileSnapshot;
+import pl.lordtricker.ltrynek.client.scheduler.TickScheduler;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opóźniony zapis configu w tle.
+ * <p>
+ * Komendy zmieniające listy cen oznaczają zmieniony profil jako brudny; zmiany z krótkiego
+ * okresu są scalane w jeden zapis (SAVE_DELAY_TICKS po ostatniej zmianie). Przy zapisie
+ * w wątku klienta powstają kopie brudnych wpisów, a serializacja i zapis plików
+ * (plik tymczasowy + atomowa podmiana) dzieją się w osobnym wątku.
+ * Metody wolno wywoływać tylko z wątku klienta.
+ */
+public class ConfigSaver {
+    private static final String SAVE_TASK_KEY = "config-save";
+    private static final long SAVE_DELAY_TICKS = 2 * TickScheduler.TICKS_PER_SECOND;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LT-Rynek config writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Set<ServerEntry> dirtyEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static boolean mainDirty = false;
+
+    public static void init() {
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> shutdown());
+    }
+
+    /**
+     * Przepisuje listę cen profilu z pamięci do jego ServerEntry i planuje zapis.
+     * Profile bez wpisu w configu i profile z niewczytaną listą cen są pomijane – wołający musi
+     * wcześniej wczytać profil (ProfileLoader.awaitLoaded), zanim zmieni jego listę. Nie blokuje.
+     */
+    public static void markProfileDirty(String profileName) {
+        ServerEntry entry = ServerRegistry.findByProfile(profileName);
+        if (entry == null || !entry.pricesLoaded) return;
+        syncPrices(entry);
+        markDirty(entry);
+        scheduleSave();
+    }
+
+    /**
+     * Zmiana ustawień z głównego pliku (np. dźwięki).
+     */
+    public static void markMainDirty() {
+        mainDirty = true;
+        scheduleSave();
+    }
+
+    /**
+     * Synchronizuje wszystkie profile z pamięci i od razu zleca zapis wszystkich plików.
+     */
+    public static void saveAllNow() {
+        ServersConfig config = LtrynekClient.serversConfig;
+        if (config == null) return;
+        ProfileLoader.awaitAll();
+        for (ServerEntry entry : config.servers) {
+            if (!entry.pricesLoaded) continue;
+            syncPrices(entry);
+            markDirty(entry);
+        }
+        mainDirty = true;
+        flush();
+    }
+
+    /**
+     * Zleca zapis oczekujących zmian i czeka, aż trafią na dysk (np. przed przeładowaniem configu).
+     */
+    public static void flushAndWait() {
+        Future<?> pending = flush();
+        if (pending == null) return;
+        try {
+            pending.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.err.println("Nie udało się dokończyć zapisu configu: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Zapomina niezapisane zmiany wpisu, który został zastąpiony wersją z dysku.
+     */
+    static void discard(ServerEntry entry) {
+        dirtyEntries.remove(entry);
+    }
+
+    private static void scheduleSave() {
+        TickScheduler.schedule(SAVE_TASK_KEY, SAVE_DELAY_TICKS, ConfigSaver::flush);
+    }
+
+    private static void markDirty(ServerEntry entry) {
+        if (entry.sourceFile == null) {
+            mainDirty = true;
+        } else {
+            dirtyEntries.add(entry);
+        }
+    }
+
+    /**
+     * Robi kopie brudnych wpisów i przekazuje je do wątku zapisu.
+     */
+    private static Future<?> flush() {
+        TickScheduler.cancel(SAVE_TASK_KEY);
+        ServersConfig config = LtrynekClient.serversConfig;
+        if (config == null || (!mainDirty && dirtyEntries.isEmpty())) return null;
+
+        ServersConfig mainSnapshot = mainDirty ? ConfigLoader.mainConfigOf(config, true) : null;
+        List<ServerEntry> miniSnapshots = new ArrayList<>(dirtyEntries.size());
+        for (ServerEntry entry : dirtyEntries) {
+            miniSnapshots.add(entry.copy());
+        }
+        mainDirty = false;
+        dirtyEntries.clear();
+
+        return writer.submit(() -> {
+            if (mainSnapshot != null) {
+                ConfigLoader.writeMainConfig(mainSnapshot);
+            }
+            for (ServerEntry snapshot : miniSnapshots) {
+                ConfigLoader.writeMiniConfig(snapshot);
+            }
+        });
+    }
+
+    /**
+     * Zapisuje zaległe zmiany przy zamykaniu gry.
+     */
+    private static void shutdown() {
+        flush();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pamięć (ClientPriceListManager) jest źródłem prawdy: jedno przejście po mapie composite key
+     * zachowuje wpisy z configu (z oryginalną wielkością liter), aktualizuje ich ceny,
+     * dodaje nowe i pomija usunięte. Wpisy są współdzielone ze snapshotami profili, więc
+     * zmiana ceny tworzy kopię zamiast modyfikować wpis.
+     */
+    private static void syncPrices(ServerEntry entry) {
+        ProfileSnapshot snapshot = ClientPriceListManager.getSnapshot(entry.profileName);
+        if (snapshot == null) return;
+        List<PriceEntry> inMemory = snapshot.entries;
+        Map<String, PriceEntry> stored = new HashMap<>();
+        if (entry.prices != null) {
+            for (PriceEntry pe : entry.prices) {
+                stored.put(CompositeKeyUtil.getCompositeKeyFromEntry(pe), pe);
+            }
+        }
+        List<PriceEntry> prices = new ArrayList<>(inMemory.size());
+        for (PriceEntry pe : inMemory) {
+            PriceEntry existing = stored.get(CompositeKeyUtil.getCompositeKeyFromEntry(pe));
+            if (existing == null) {
+                prices.add(pe);
+            } else if (existing.maxPrice == pe.maxPrice) {
+                prices.add(existing);
+            } else {
+                PriceEntry updated = existing.copy();
+                updated.maxPrice = pe.maxPrice;
+                prices.add(updated);
+            }
+        }
+        entry.prices = prices;
+    }
+}
@@ -0,0 +1,279 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binarny snapshot sparsowanego mini configu, zapisywany obok JSON-a (&lt;plik&gt;.json.snapshot).
+ * <p>
+ * Zawiera wpis po uzupełnieniu domyślnych wartości i listę cen razem z gotowymi composite key,
+ * więc wczytanie profilu nie potrzebuje Gsona ani budowania kluczy. Nagłówek trzyma rozmiar,
+ * czas modyfikacji i hash treści pliku źródłowego oraz długość bloku metadanych.
+ * <p>
+ * Zgodny rozmiar i czas modyfikacji wystarczą – pliku źródłowego wtedy w ogóle nie czytamy.
+ * Dopiero przy innym czasie modyfikacji liczony jest hash treści: zgodny oznacza tę samą treść
+ * (odświeżany jest wtedy sam czas modyfikacji w nagłówku – refreshMtime), niezgodny – profil jest czytany z JSON-a, a snapshot budowany
+ * od nowa w tle (ProfileLoader, ConfigSaver, ConfigWatcher). Same metadane to odczyt nagłówka
+ * i jednego bloku, bez listy cen.
+ */
+public class ConfigSnapshot {
+    static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x4C545253; // "LTRS"
+    private static final int VERSION = 3;
+    /** magic, wersja, rozmiar, czas modyfikacji, hash, długość metadanych. */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4;
+    private static final int MTIME_OFFSET = 4 + 4 + 8;
+
+    /**
+     * Rozmiar, czas modyfikacji i hash tej treści pliku źródłowego, z której zbudowano wpis.
+     * Czas modyfikacji musi być odczytany przed treścią – późniejsza zmiana pliku da wtedy
+     * inny czas i snapshot nie przejdzie szybkiej ścieżki.
+     */
+    static final class Source {
+        final long size;
+        final long mtime;
+        final long hash;
+
+        Source(long size, long mtime, long hash) {
+            this.size = size;
+            this.mtime = mtime;
+            this.hash = hash;
+        }
+
+        static Source of(byte[] bytes, long mtime) {
+            return new Source(bytes.length, mtime, contentHash(bytes));
+        }
+    }
+
+    public final ServerEntry entry;
+    /** Composite key każdego wpisu z entry.prices (null, jeśli czytano tylko metadane). */
+    public final String[] compositeKeys;
+    /** False, gdy plik ma inny czas modyfikacji, ale tę samą treść – warto wywołać refreshMtime. */
+    public final boolean mtimeMatches;
+    private final Path source;
+    /** Czas modyfikacji odczytany przed sprawdzeniem treści, którą potwierdził hash. */
+    private final long validatedMtime;
+
+    private ConfigSnapshot(ServerEntry entry, String[] compositeKeys, boolean mtimeMatches, Path source, long validatedMtime) {
+        this.entry = entry;
+        this.compositeKeys = compositeKeys;
+        this.mtimeMatches = mtimeMatches;
+        this.source = source;
+        this.validatedMtime = validatedMtime;
+    }
+
+    static Path snapshotPath(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Wczytuje aktualny snapshot pliku albo zwraca null (brak, nieaktualny lub uszkodzony).
+     * Przy withPrices = false czyta tylko nagłówek i metadane – lista cen wpisu jest pusta.
+     */
+    static ConfigSnapshot read(Path source, boolean withPrices) {
+        Path file = snapshotPath(source);
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+            long size = header.getLong();
+            long mtime = header.getLong();
+            long hash = header.getLong();
+            int metadataLength = header.getInt();
+            if (metadataLength < 0 || HEADER_BYTES + (long) metadataLength > channel.size()) return null;
+            if (Files.size(source) != size) return null;
+            long sourceMtime = modifiedTime(source);
+            boolean mtimeMatches = sourceMtime == mtime;
+            if (!mtimeMatches && contentHash(source) != hash) return null;
+
+            ByteBuffer in = readFully(channel, withPrices ? channel.size() - HEADER_BYTES : metadataLength);
+            ServerEntry entry = new ServerEntry();
+            entry.profileName = readString(in);
+            int domains = in.getInt();
+            entry.domains = new ArrayList<>(domains);
+            for (int i = 0; i < domains; i++) {
+                entry.domains.add(readString(in));
+            }
+            entry.loreRegex = readString(in);
+            entry.highlightColor = readString(in);
+            entry.highlightColorStack = readString(in);
+            entry.miniAlarmSound = readString(in);
+            entry.miniAlarmSoundStack = readString(in);
+            entry.sourceFile = source;
+            entry.prices = new ArrayList<>();
+            if (!withPrices) {
+                return new ConfigSnapshot(entry, null, mtimeMatches, source, sourceMtime);
+            }
+
+            int count = in.getInt();
+            List<PriceEntry> prices = new ArrayList<>(count);
+            String[] keys = new String[count];
+            for (int i = 0; i < count; i++) {
+                PriceEntry pe = new PriceEntry();
+                pe.name = readString(in);
+                pe.lore = readString(in);
+                pe.material = readString(in);
+                pe.enchants = readString(in);
+                pe.maxPrice = in.getLong();
+                keys[i] = readString(in);
+                prices.add(pe);
+            }
+            entry.prices = prices;
+            return new ConfigSnapshot(entry, keys, mtimeMatches, source, sourceMtime);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Pomijam uszkodzony snapshot " + file.getFileName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Wpisuje do nagłówka czas modyfikacji, przy którym hash potwierdził treść – reszta snapshotu
+     * (wpis i ceny) już jej odpowiada, więc nie trzeba go przepisywać.
+     */
+    void refreshMtime() {
+        if (mtimeMatches) return;
+        Path file = snapshotPath(source);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer mtime = ByteBuffer.allocate(Long.BYTES).putLong(validatedMtime).flip();
+            while (mtime.hasRemaining()) {
+                channel.write(mtime, MTIME_OFFSET + mtime.position());
+            }
+        } catch (IOException e) {
+            System.err.println("Nie udało się odświeżyć snapshotu " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Zapisuje snapshot wpisu sparsowanego z treści opisanej przez sourceStamp (plik tymczasowy
+     * + atomowa podmiana). Jeśli plik zmienił się od odczytu, snapshot nie jest zapisywany.
+     */
+    static void write(Path source, ServerEntry entry, Source sourceStamp) {
+        Path file = snapshotPath(source);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(sourceStamp.size);
+                out.writeLong(sourceStamp.mtime);
+                out.writeLong(sourceStamp.hash);
+
+                ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+                DataOutputStream meta = new DataOutputStream(metadata);
+                writeString(meta, entry.profileName);
+                meta.writeInt(entry.domains.size());
+                for (String domain : entry.domains) {
+                    writeString(meta, domain);
+                }
+                writeString(meta, entry.loreRegex);
+                writeString(meta, entry.highlightColor);
+                writeString(meta, entry.highlightColorStack);
+                writeString(meta, entry.miniAlarmSound);
+                writeString(meta, entry.miniAlarmSoundStack);
+                out.writeInt(metadata.size());
+                metadata.writeTo(out);
+
+                out.writeInt(entry.prices.size());
+                for (PriceEntry pe : entry.prices) {
+                    writeString(out, pe.name);
+                    writeString(out, pe.lore);
+                    writeString(out, pe.material);
+                    writeString(out, pe.enchants);
+                    out.writeLong(pe.maxPrice);
+                    writeString(out, CompositeKeyUtil.getCompositeKeyFromEntry(pe));
+                }
+            }
+            if (modifiedTime(source) != sourceStamp.mtime) {
+                Files.deleteIfExists(temp);
+                return;
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Nie udało się zapisać snapshotu " + file.getFileName() + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static long modifiedTime(Path source) throws IOException {
+        return Files.getLastModifiedTime(source).toMillis();
+    }
+
+    static long contentHash(byte[] bytes) {
+        ContentHash hash = new ContentHash();
+        hash.update(bytes, 0, bytes.length);
+        return hash.finish();
+    }
+
+    /**
+     * Hash pliku czytanego strumieniem, bez ładowania go w całości do pamięci.
+     */
+    static long contentHash(Path file) throws IOException {
+        ContentHash hash = new ContentHash();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                hash.update(buffer, 0, read);
+            }
+        }
+        return hash.finish();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(length));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("ucięty snapshot");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Długość w bajtach UTF-8 (-1 = null) i bajty – odczyt to jedno new String na wycinku bufora.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,152 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import net.minecraft.client.MinecraftClient;
+import pl.lordtricker.ltrynek.client.LtrynekClient;
+import pl.lordtricker.ltrynek.client.manager.ClientPriceListManager;
+import pl.lordtricker.ltrynek.client.util.ColorUtils;
+import pl.lordtricker.ltrynek.client.util.Messages;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.MatchIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Obserwuje katalog LT-Rynek i przeładowuje tylko zmieniony mini config.
+ * <p>
+ * Wątek obserwatora czeka, aż zdarzenia dla pliku ucichną (edytory zapisują plik kilkoma
+ * operacjami), wczytuje JSON, buduje listę cen i indeks dopasowań, a w wątku klienta
+ * podmienia tylko ten jeden profil. Pliki zapisane przez sam mod (ConfigSaver) są pomijane.
+ * Zmiany głównego pliku i usunięcia plików wymagają /ltr config reload.
+ */
+public class ConfigWatcher {
+    private static final long QUIET_MILLIS = 300;
+
+    private static WatchService watchService;
+
+    public static void start(Path dir) {
+        if (watchService != null) return;
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("Nie udało się uruchomić obserwatora configu: " + e.getMessage());
+            watchService = null;
+            return;
+        }
+        Thread thread = new Thread(() -> run(dir), "LT-Rynek config watcher");
+        thread.setDaemon(true);
+        thread.start();
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> stop());
+    }
+
+    private static void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void run(Path dir) {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = watchService.take();
+                // zbieramy zdarzenia, dopóki przez QUIET_MILLIS nie przyjdzie nic nowego
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path name && name.toString().endsWith(".json")) {
+                            changed.add(dir.resolve(name));
+                        }
+                    }
+                    key.reset();
+                    key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                for (Path file : changed) {
+                    reload(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // zamknięcie gry
+        }
+    }
+
+    private static void reload(Path file) {
+        if (ConfigLoader.isMainConfigFile(file)) return;
+        long mtime;
+        byte[] bytes;
+        try {
+            mtime = ConfigSnapshot.modifiedTime(file);
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            System.err.println("Nie udało się odczytać " + file.getFileName() + ": " + e.getMessage());
+            return;
+        }
+        String json = new String(bytes, StandardCharsets.UTF_8);
+        if (ConfigLoader.isOwnWrite(file, json)) return;
+
+        ProfilePrices prices = new ProfilePrices();
+        ServerEntry entry = ConfigLoader.readMiniConfig(file, new ByteArrayInputStream(bytes), prices);
+        if (entry == null) return;
+        ConfigSnapshot.write(file, entry, ConfigSnapshot.Source.of(bytes, mtime));
+
+        List<PriceEntry> entries = prices.entries();
+        MatchIndex index = prices.buildIndex();
+        MinecraftClient.getInstance().execute(() -> apply(entry, entries, index));
+    }
+
+    /**
+     * Podmienia profil w configu, skompilowane ustawienia i listę cen – w wątku klienta.
+     */
+    private static void apply(ServerEntry entry, List<PriceEntry> entries, MatchIndex index) {
+        ServersConfig config = LtrynekClient.serversConfig;
+        if (config == null) return;
+        boolean replaced = false;
+        for (int i = 0; i < config.servers.size(); i++) {
+            ServerEntry existing = config.servers.get(i);
+            if (existing.profileName.equalsIgnoreCase(entry.profileName)) {
+                ConfigSaver.discard(existing);
+                if (!replaced) {
+                    config.servers.set(i, entry);
+                    replaced = true;
+                } else {
+                    config.servers.remove(i--);
+                }
+            }
+        }
+        if (!replaced) {
+            config.servers.add(entry);
+        }
+        ServerRegistry.rebuild(config);
+
+        ProfileLoader.cancel(entry.profileName);
+        ClientPriceListManager.replaceProfile(entry.profileName, CompiledProfile.compile(entry), entries, index);
+
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.player != null) {
+            String msg = Messages.format("config.hotreload.success", Map.of(
+                    "profile", entry.profileName,
+                    "count", String.valueOf(entries.size())
+            ));
+            client.player.sendMessage(ColorUtils.translateColorCodes(msg), false);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import pl.lordtricker.ltrynek.core.util.Fingerprints;
+
+/**
+ * 64-bitowy hash treści pliku liczony przyrostowo: słowa po 8 bajtów (little endian),
+ * ogon bajt po bajcie i na końcu długość. Ten sam wynik niezależnie od podziału na porcje,
+ * więc można go liczyć w trakcie strumieniowego czytania pliku.
+ */
+final class ContentHash {
+    private long hash = Fingerprints.start();
+    private long word;
+    private int wordBytes;
+    private long length;
+
+    void update(byte[] bytes, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            word |= (bytes[i] & 0xFFL) << (8 * wordBytes);
+            if (++wordBytes == Long.BYTES) {
+                hash = Fingerprints.mix(hash, word);
+                word = 0;
+                wordBytes = 0;
+            }
+        }
+        length += count;
+    }
+
+    long finish() {
+        long result = hash;
+        for (int i = 0; i < wordBytes; i++) {
+            result = Fingerprints.mix(result, (long) (byte) (word >>> (8 * i)));
+        }
+        return Fingerprints.finish(Fingerprints.mix(result, length));
+    }
+}
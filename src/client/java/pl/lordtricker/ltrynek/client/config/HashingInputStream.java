@@ -0,0 +1,76 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Strumień, który po drodze liczy ContentHash czytanej treści – plik parsowany strumieniowo
+ * nie musi być drugi raz czytany (ani trzymany w pamięci) dla snapshotu.
+ * <p>
+ * Przy zamknięciu doczytuje resztę strumienia (np. białe znaki za obiektem JSON, których parser
+ * już nie czyta), żeby hash i rozmiar obejmowały cały plik.
+ */
+final class HashingInputStream extends FilterInputStream {
+    private final ContentHash hash = new ContentHash();
+    private long size;
+    private boolean closed;
+
+    HashingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = in.read(buffer, offset, length);
+        if (read > 0) {
+            hash.update(buffer, offset, read);
+            size += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            byte[] buffer = new byte[8192];
+            while (read(buffer, 0, buffer.length) >= 0) {
+                // reszta pliku tylko do hasha
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Opis przeczytanej treści do nagłówka snapshotu – po zamknięciu strumienia.
+     */
+    ConfigSnapshot.Source source(long mtime) {
+        return new ConfigSnapshot.Source(size, mtime, hash.finish());
+    }
+}
@@ -1,9 +0,0 @@
-package pl.lordtricker.ltrynek.client.config;
-
-public class PriceEntry {
-    public String name;
-    public String lore;
-    public String material;
-    public double maxPrice;
-    public String enchants;
-}
\ No newline at end of file
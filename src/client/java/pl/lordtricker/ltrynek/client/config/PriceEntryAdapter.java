@@ -0,0 +1,55 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.PriceFormatter;
+
+import java.io.IOException;
+
+/**
+ * Zapis i odczyt PriceEntry w Gsonie: maxPrice jest w pamięci w groszach, a w pliku
+ * zostaje liczbą w walucie serwera (100, 1.5), więc stare configi i listy działają bez zmian.
+ * Model w core nie zależy od Gsona, dlatego adapter jest rejestrowany w GsonBuilderze, a nie adnotacją.
+ */
+class PriceEntryAdapter extends TypeAdapter<PriceEntry> {
+
+    @Override
+    public void write(JsonWriter out, PriceEntry pe) throws IOException {
+        if (pe == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeString(out, "name", pe.name);
+        writeString(out, "lore", pe.lore);
+        writeString(out, "material", pe.material);
+        out.name("maxPrice").jsonValue(PriceFormatter.formatPlain(pe.maxPrice));
+        writeString(out, "enchants", pe.enchants);
+        out.endObject();
+    }
+
+    @Override
+    public PriceEntry read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        PriceEntry pe = new PriceEntry();
+        String error = ConfigLoader.readPriceEntry(in, pe);
+        if (error != null) {
+            // główny config wczytywany w całości – wpis zostaje jak dawniej, tylko zgłaszamy problem
+            System.err.println("Niepoprawny wpis ceny w configu: " + error);
+        }
+        return pe;
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        // tak jak domyślny Gson – pola null są pomijane
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.core.util.PriceFormatter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Import i eksport list cen w plikach CSV i JSON Lines (katalog LT-Rynek/lists).
+ * <p>
+ * CSV: nagłówek z kolumnami name, lore, material, enchants, maxPrice w dowolnej kolejności
+ * (bez nagłówka – właśnie w tej kolejności); pola z przecinkiem, cudzysłowem lub nową linią
+ * w cudzysłowach, "" oznacza cudzysłów. Cena może mieć przyrostek k/m/mld, tak jak w /ltr add.
+ * JSONL: jeden obiekt wpisu na linię, w tym samym formacie co "prices" w mini configu.
+ * <p>
+ * Plik jest czytany linia po linii; błędne wiersze są pomijane z numerem linii, a powtórzone
+ * composite key scalane w jednym przejściu po mapie (ostatnia cena wygrywa).
+ */
+public class PriceListTransfer {
+    public static final String DIRECTORY = "lists";
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(PriceEntry.class, new PriceEntryAdapter())
+            .create();
+    private static final String[] CSV_COLUMNS = {"name", "lore", "material", "enchants", "maxPrice"};
+
+    public static class ImportResult {
+        /** Wpisy bez powtórzeń composite key, w kolejności pierwszego wystąpienia. */
+        public final List<PriceEntry> entries;
+        public final int skipped;
+
+        ImportResult(List<PriceEntry> entries, int skipped) {
+            this.entries = entries;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * Ścieżka pliku w katalogu list. Rzuca IllegalArgumentException przy nieobsługiwanym
+     * rozszerzeniu albo nazwie wychodzącej poza katalog.
+     */
+    public static Path resolve(String fileName) throws IOException {
+        Path dir = directory();
+        Path file = dir.resolve(fileName.trim()).normalize();
+        if (!file.startsWith(dir) || file.equals(dir)) {
+            throw new IllegalArgumentException("niepoprawna nazwa pliku " + fileName);
+        }
+        if (!isCsv(file) && !isJsonLines(file)) {
+            throw new IllegalArgumentException("obslugiwane formaty: .csv, .jsonl");
+        }
+        Files.createDirectories(file.getParent());
+        return file;
+    }
+
+    /**
+     * Nazwy plików list (do podpowiedzi komendy).
+     */
+    public static List<String> listFiles() {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory())) {
+            for (Path file : stream) {
+                if (isCsv(file) || isJsonLines(file)) {
+                    names.add(file.getFileName().toString());
+                }
+            }
+        } catch (IOException e) {
+            // brak katalogu – nie ma czego podpowiadać
+        }
+        return names;
+    }
+
+    public static ImportResult read(Path file) throws IOException {
+        Map<String, PriceEntry> byKey = new LinkedHashMap<>();
+        int skipped;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            skipped = isCsv(file) ? readCsv(file, reader, byKey) : readJsonLines(file, reader, byKey);
+        }
+        return new ImportResult(new ArrayList<>(byKey.values()), skipped);
+    }
+
+    public static void write(Path file, List<PriceEntry> entries) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (isCsv(file)) {
+                writer.write(String.join(",", CSV_COLUMNS));
+                writer.newLine();
+                for (PriceEntry pe : entries) {
+                    writer.write(csvField(pe.name) + "," + csvField(pe.lore) + "," + csvField(pe.material) + ","
+                            + csvField(pe.enchants) + "," + PriceFormatter.formatPlain(pe.maxPrice));
+                    writer.newLine();
+                }
+            } else {
+                for (PriceEntry pe : entries) {
+                    writer.write(GSON.toJson(pe));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private static int readJsonLines(Path file, BufferedReader reader, Map<String, PriceEntry> byKey) throws IOException {
+        int skipped = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1) line = stripBom(line);
+            if (line.isBlank()) continue;
+            PriceEntry pe = new PriceEntry();
+            String error;
+            try (JsonReader json = new JsonReader(new StringReader(line))) {
+                error = ConfigLoader.readPriceEntry(json, pe);
+            } catch (IOException | IllegalStateException e) {
+                // błąd składni psuje tylko tę linię
+                error = e.getMessage();
+            }
+            if (error != null) {
+                reportInvalidLine(file, lineNumber, error);
+                skipped++;
+                continue;
+            }
+            byKey.put(CompositeKeyUtil.getCompositeKeyFromEntry(pe), pe);
+        }
+        return skipped;
+    }
+
+    private static int readCsv(Path file, BufferedReader reader, Map<String, PriceEntry> byKey) throws IOException {
+        int skipped = 0;
+        int lineNumber = 0;
+        int[] columns = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1) line = stripBom(line);
+            int recordLine = lineNumber;
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String record = line;
+            List<String> fields;
+            // pole w cudzysłowach może ciągnąć się przez kilka linii
+            while ((fields = splitCsv(record)) == null) {
+                String next = reader.readLine();
+                if (next == null) {
+                    reportInvalidLine(file, recordLine, "niezamkniety cudzyslow");
+                    return skipped + 1;
+                }
+                lineNumber++;
+                record = record + "\n" + next;
+            }
+
+            if (columns == null) {
+                columns = headerColumns(fields);
+                if (columns != null) continue;
+                columns = new int[]{0, 1, 2, 3, 4};
+            }
+            PriceEntry pe = new PriceEntry();
+            String error = readCsvEntry(fields, columns, pe);
+            if (error != null) {
+                reportInvalidLine(file, recordLine, error);
+                skipped++;
+                continue;
+            }
+            byKey.put(CompositeKeyUtil.getCompositeKeyFromEntry(pe), pe);
+        }
+        return skipped;
+    }
+
+    /**
+     * Indeks kolumny dla każdego pola z CSV_COLUMNS (-1 = brak) albo null, jeśli wiersz
+     * nie jest nagłówkiem (nie ma kolumny maxPrice).
+     */
+    private static int[] headerColumns(List<String> fields) {
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int c = 0; c < CSV_COLUMNS.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; i < fields.size(); i++) {
+                if (fields.get(i).trim().equalsIgnoreCase(CSV_COLUMNS[c])) {
+                    columns[c] = i;
+                }
+            }
+        }
+        return columns[4] < 0 ? null : columns;
+    }
+
+    private static String readCsvEntry(List<String> fields, int[] columns, PriceEntry pe) {
+        String rawPrice = csvValue(fields, columns[4]);
+        if (rawPrice == null) {
+            return "brak ceny";
+        }
+        long price = PriceFormatter.parsePrice(rawPrice);
+        if (price < 0) {
+            return "niepoprawna cena " + rawPrice;
+        }
+        pe.name = csvValue(fields, columns[0]);
+        pe.lore = csvValue(fields, columns[1]);
+        pe.material = csvValue(fields, columns[2]);
+        pe.enchants = csvValue(fields, columns[3]);
+        pe.maxPrice = price;
+        return ConfigLoader.validatePriceEntry(pe);
+    }
+
+    /**
+     * Wartość kolumny bez otaczających spacji; pusta albo brakująca kolumna to null.
+     */
+    private static String csvValue(List<String> fields, int column) {
+        if (column < 0 || column >= fields.size()) return null;
+        String value = fields.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Dzieli rekord CSV na pola. Zwraca null, jeśli cudzysłów nie został zamknięty.
+     */
+    private static List<String> splitCsv(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) return null;
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Arkusze kalkulacyjne często zapisują UTF-8 ze znacznikiem BOM na początku pliku.
+     */
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+
+    private static void reportInvalidLine(Path file, int lineNumber, String reason) {
+        System.err.println("Pomijam linie " + lineNumber + " w " + file.getFileName() + ": " + reason);
+    }
+
+    private static Path directory() {
+        return ConfigLoader.getModConfigDir().resolve(DIRECTORY);
+    }
+
+    private static boolean isCsv(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    private static boolean isJsonLines(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jsonl");
+    }
+}
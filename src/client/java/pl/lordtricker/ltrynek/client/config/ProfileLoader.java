@@ -0,0 +1,278 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import net.minecraft.client.MinecraftClient;
+import pl.lordtricker.ltrynek.client.LtrynekClient;
+import pl.lordtricker.ltrynek.client.manager.ClientPriceListManager;
+import pl.lordtricker.ltrynek.client.manager.ClientProfileManager;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.MatchIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Ładowanie mini configów i list cen profili w tle.
+ * <p>
+ * Każdy profil jest ładowany w wirtualnym wątku (najwyżej PARALLELISM naraz) w dwóch krokach:
+ * najpierw metadane mini configu (domeny, regex, kolory – zwykle sam nagłówek snapshotu),
+ * które trafiają do configu, ServerRegistry i ClientProfileManager, potem lista cen razem
+ * z budową indeksu dopasowań, wstawiana do ClientPriceListManager. Wstawianie odbywa się
+ * w wątku klienta.
+ * <p>
+ * JOIN czeka tylko na metadane (awaitMetadata – bez nich nie da się dopasować serwera),
+ * a profil potrzebny od razu jest ładowany poza kolejką – prioritize; komendy zmieniające
+ * listę czekają na swój profil – awaitLoaded. Zadanie wykonuje się tylko raz (FutureTask),
+ * niezależnie od tego, który wątek je uruchomi.
+ * Metody wolno wywoływać tylko z wątku klienta.
+ */
+public class ProfileLoader {
+    private static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final Semaphore permits = new Semaphore(PARALLELISM);
+
+    private static final Map<String, FutureTask<ServerEntry>> pendingMetadata = new HashMap<>();
+    private static final Map<String, FutureTask<LoadedProfile>> pending = new HashMap<>();
+
+    private static class LoadedProfile {
+        final ServerEntry entry;
+        final List<PriceEntry> entries;
+        final MatchIndex index;
+
+        LoadedProfile(ServerEntry entry, List<PriceEntry> entries, MatchIndex index) {
+            this.entry = entry;
+            this.entries = entries;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Zleca wczytanie mini configów z katalogu moda i list cen wszystkich profili, porzucając
+     * wcześniejsze zadania. Do czasu wczytania profil z mini configu nie ma wpisu w configu,
+     * a każdy profil ma pustą listę (skaner niczego nie podświetla) i pricesLoaded = false.
+     */
+    public static void loadAll(ServersConfig config) {
+        for (String profileName : new ArrayList<>(pending.keySet())) {
+            cancel(profileName);
+        }
+        for (String profileName : new ArrayList<>(pendingMetadata.keySet())) {
+            cancel(profileName);
+        }
+
+        List<Path> miniConfigs = ConfigLoader.listMiniConfigs();
+        Set<String> shadowed = new HashSet<>();
+        for (Path file : miniConfigs) {
+            shadowed.add(ConfigLoader.profileNameOf(file).toLowerCase(Locale.ROOT));
+        }
+        for (ServerEntry entry : config.servers) {
+            // wpis z głównego pliku, który mini config zastąpi – ładowany tylko, gdy mini config okaże się błędny
+            if (entry.profileName == null || shadowed.contains(entry.profileName.toLowerCase(Locale.ROOT))) continue;
+            schedule(entry);
+        }
+        for (Path file : miniConfigs) {
+            scheduleMiniConfig(file);
+        }
+    }
+
+    /**
+     * Wpis z głównego pliku – ma już listę cen, w tle powstaje tylko indeks.
+     */
+    private static void schedule(ServerEntry entry) {
+        // kopia listy, bo wątek w tle jej nie synchronizuje
+        List<PriceEntry> inline = entry.prices != null ? new ArrayList<>(entry.prices) : new ArrayList<>();
+        entry.pricesLoaded = false;
+
+        String profileName = entry.profileName;
+        FutureTask<LoadedProfile> task = new FutureTask<>(() -> load(entry, inline));
+        pending.put(profileName, task);
+        Thread.ofVirtual().name("LT-Rynek profile " + profileName).start(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+            MinecraftClient.getInstance().execute(() -> install(profileName, task));
+        });
+    }
+
+    private static void scheduleMiniConfig(Path file) {
+        String profileName = ConfigLoader.profileNameOf(file);
+        FutureTask<ServerEntry> metadata = new FutureTask<>(() -> ConfigLoader.readMiniConfigMetadata(file));
+        FutureTask<LoadedProfile> task = new FutureTask<>(() -> {
+            metadata.run();
+            ServerEntry entry = metadata.get();
+            if (entry == null) {
+                throw new IllegalStateException("niepoprawny mini config " + file.getFileName());
+            }
+            return load(entry, null);
+        });
+        pendingMetadata.put(profileName, metadata);
+        pending.put(profileName, task);
+        Thread.ofVirtual().name("LT-Rynek profile " + profileName).start(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                metadata.run();
+                MinecraftClient.getInstance().execute(() -> installMetadata(profileName, metadata));
+                task.run();
+            } finally {
+                permits.release();
+            }
+            MinecraftClient.getInstance().execute(() -> install(profileName, task));
+        });
+    }
+
+    /**
+     * Ładuje profil natychmiast, z pominięciem kolejki (np. serwer, na który właśnie wchodzimy).
+     */
+    public static void prioritize(String profileName) {
+        FutureTask<LoadedProfile> task = pending.get(profileName);
+        if (task == null || task.isDone()) return;
+        Thread.ofVirtual().name("LT-Rynek profile " + profileName).start(() -> {
+            task.run();
+            MinecraftClient.getInstance().execute(() -> install(profileName, task));
+        });
+    }
+
+    /**
+     * Czeka (w razie potrzeby czytając w bieżącym wątku), aż metadane wszystkich mini configów
+     * będą w configu i w ServerRegistry. Listy cen ładują się dalej w tle.
+     */
+    public static void awaitMetadata() {
+        for (Map.Entry<String, FutureTask<ServerEntry>> pendingEntry : new ArrayList<>(pendingMetadata.entrySet())) {
+            pendingEntry.getValue().run();
+            installMetadata(pendingEntry.getKey(), pendingEntry.getValue());
+        }
+    }
+
+    /**
+     * Czeka (w razie potrzeby ładując w bieżącym wątku), aż lista cen profilu będzie w pamięci.
+     */
+    public static void awaitLoaded(String profileName) {
+        FutureTask<LoadedProfile> task = pending.get(profileName);
+        if (task == null) return;
+        task.run();
+        install(profileName, task);
+    }
+
+    public static void awaitAll() {
+        awaitMetadata();
+        for (String profileName : new ArrayList<>(pending.keySet())) {
+            awaitLoaded(profileName);
+        }
+    }
+
+    /**
+     * Porzuca ładowanie profilu (np. gdy jego plik został właśnie przeładowany w całości).
+     */
+    public static void cancel(String profileName) {
+        FutureTask<ServerEntry> metadata = pendingMetadata.remove(profileName);
+        if (metadata != null) {
+            metadata.cancel(false);
+        }
+        FutureTask<LoadedProfile> task = pending.remove(profileName);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Wstawia metadane mini configu: wpis zastępuje profil o tej samej nazwie z głównego pliku.
+     * Przy błędnym mini configu zostaje wpis z głównego pliku (jeśli jest) i jego lista cen.
+     */
+    private static void installMetadata(String profileName, FutureTask<ServerEntry> metadata) {
+        if (pendingMetadata.get(profileName) != metadata) return;
+        pendingMetadata.remove(profileName);
+        ServersConfig config = LtrynekClient.serversConfig;
+        ServerEntry entry;
+        try {
+            entry = metadata.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            System.err.println("Nie udało się wczytać mini configu " + profileName + ": " + e.getCause().getMessage());
+            entry = null;
+        }
+        if (entry == null) {
+            cancel(profileName);
+            for (ServerEntry main : config.servers) {
+                if (main.profileName != null && main.profileName.equalsIgnoreCase(profileName)) {
+                    schedule(main);
+                }
+            }
+            return;
+        }
+        String name = entry.profileName;
+        config.servers.removeIf(se -> se.profileName.equalsIgnoreCase(name));
+        config.servers.add(entry);
+        ClientProfileManager.put(name, CompiledProfile.compile(entry));
+        ServerRegistry.rebuild(config);
+    }
+
+    private static LoadedProfile load(ServerEntry entry, List<PriceEntry> inline) throws IOException {
+        if (inline != null) {
+            return loaded(entry, ProfilePrices.of(inline, null));
+        }
+
+        Path file = entry.sourceFile;
+        ConfigSnapshot snapshot = ConfigSnapshot.read(file, true);
+        if (snapshot != null) {
+            snapshot.refreshMtime();
+            return loaded(entry, ProfilePrices.of(snapshot.entry.prices, snapshot.compositeKeys));
+        }
+
+        // brak aktualnego snapshotu – JSON czytany strumieniowo prosto do listy i indeksu
+        // (hash treści liczony po drodze), a snapshot budujemy od razu (jesteśmy w wątku w tle)
+        long mtime = ConfigSnapshot.modifiedTime(file);
+        HashingInputStream in = new HashingInputStream(Files.newInputStream(file));
+        ProfilePrices prices = new ProfilePrices();
+        ServerEntry full = ConfigLoader.readMiniConfig(file, in, prices);
+        if (full == null) {
+            throw new IllegalStateException("nie udało się wczytać " + file.getFileName());
+        }
+        ConfigSnapshot.write(file, full, in.source(mtime));
+        return loaded(entry, prices);
+    }
+
+    private static LoadedProfile loaded(ServerEntry entry, ProfilePrices prices) {
+        return new LoadedProfile(entry, prices.entries(), prices.buildIndex());
+    }
+
+    /**
+     * Wstawia wczytany profil – tylko jeśli zadanie jest wciąż aktualne (nie zostało
+     * zastąpione ani już wstawione).
+     */
+    private static void install(String profileName, FutureTask<LoadedProfile> task) {
+        FutureTask<ServerEntry> metadata = pendingMetadata.get(profileName);
+        if (metadata != null) {
+            metadata.run();
+            installMetadata(profileName, metadata);
+        }
+        if (pending.get(profileName) != task) return;
+        pending.remove(profileName);
+        LoadedProfile loaded;
+        try {
+            loaded = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            // pricesLoaded zostaje false – plik nie zostanie nadpisany pustą listą
+            System.err.println("Nie udało się wczytać profilu " + profileName + ": " + e.getCause().getMessage());
+            return;
+        }
+        loaded.entry.prices = loaded.entries;
+        loaded.entry.pricesLoaded = true;
+        ClientPriceListManager.replaceProfile(profileName, loaded.entries, loaded.index);
+    }
+}
@@ -0,0 +1,81 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.core.util.MatchIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lista cen profilu składana wpis po wpisie (np. prosto z czytnika JSON-a).
+ * <p>
+ * entries() to jedyna lista wpisów – bez powtórzeń composite key. Trafia zarówno
+ * do ClientPriceListManager, jak i do ServerEntry.prices (kolejność zapisu), bez kopii:
+ * wpisów w snapshotach nikt nie modyfikuje. Powtórzony klucz działa jak addPriceEntry:
+ * wcześniejszy wpis jest usuwany, a późniejszy trafia na koniec. Dopóki w pliku nie ma
+ * powtórzeń, kryteria trafiają do indeksu dopasowań od razu; po pierwszym powtórzeniu
+ * indeks jest budowany z gotowej listy.
+ */
+final class ProfilePrices {
+    /** Wpisy w kolejności dodania; null w miejscu wpisu zastąpionego późniejszym. */
+    private final List<PriceEntry> entries = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final MatchIndex.Builder indexBuilder = MatchIndex.builder();
+    private int removed;
+    /** Kolejność wpisów zmieniła się po dodaniu kryteriów do indexBuilder. */
+    private boolean rebuildIndex;
+
+    /**
+     * Składa listę z gotowych wpisów; composite key mogą być już policzone (snapshot) albo null.
+     */
+    static ProfilePrices of(List<PriceEntry> source, String[] compositeKeys) {
+        ProfilePrices prices = new ProfilePrices();
+        for (int i = 0; i < source.size(); i++) {
+            PriceEntry pe = source.get(i);
+            prices.add(pe, compositeKeys != null ? compositeKeys[i] : CompositeKeyUtil.getCompositeKeyFromEntry(pe));
+        }
+        return prices;
+    }
+
+    void add(PriceEntry pe) {
+        add(pe, CompositeKeyUtil.getCompositeKeyFromEntry(pe));
+    }
+
+    void add(PriceEntry pe, String compositeKey) {
+        Integer slot = slots.put(compositeKey, entries.size());
+        if (slot != null) {
+            entries.set(slot, null);
+            removed++;
+            rebuildIndex = true;
+        }
+        entries.add(pe);
+        if (!rebuildIndex) {
+            indexBuilder.add(pe.name, pe.lore, pe.material, pe.enchants);
+        }
+    }
+
+    /**
+     * Gotowa lista wpisów – wywoływana po dodaniu wszystkich.
+     */
+    List<PriceEntry> entries() {
+        if (removed > 0) {
+            entries.removeIf(pe -> pe == null);
+            removed = 0;
+        }
+        return entries;
+    }
+
+    MatchIndex buildIndex() {
+        if (!rebuildIndex) {
+            return indexBuilder.build();
+        }
+        MatchIndex.Builder builder = MatchIndex.builder();
+        for (PriceEntry pe : entries()) {
+            builder.add(pe.name, pe.lore, pe.material, pe.enchants);
+        }
+        return builder.build();
+    }
+}
@@ -1,5 +1,7 @@
 package pl.lordtricker.ltrynek.client.config;
 
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+
 import java.nio.file.Path;
 import java.util.List;
 import java.util.ArrayList;
@@ -18,4 +20,32 @@ public class ServerEntry {
 
     public transient Path sourceFile;
 
+    /**
+     * False, dopóki lista cen nie została wczytana do ClientPriceListManager (ładowanie w tle).
+     * Takiego wpisu nie wolno synchronizować z pamięcią ani zapisywać jako mini config.
+     */
+    public transient boolean pricesLoaded = true;
+
+    /**
+     * Kopia wpisu razem z listą cen – do zapisu poza wątkiem klienta.
+     */
+    public ServerEntry copy() {
+        ServerEntry copy = new ServerEntry();
+        copy.domains = domains == null ? null : new ArrayList<>(domains);
+        copy.profileName = profileName;
+        copy.loreRegex = loreRegex;
+        copy.highlightColor = highlightColor;
+        copy.highlightColorStack = highlightColorStack;
+        copy.miniAlarmSound = miniAlarmSound;
+        copy.miniAlarmSoundStack = miniAlarmSoundStack;
+        if (prices != null) {
+            copy.prices = new ArrayList<>(prices.size());
+            for (PriceEntry pe : prices) {
+                copy.prices.add(pe.copy());
+            }
+        }
+        copy.sourceFile = sourceFile;
+        copy.pricesLoaded = pricesLoaded;
+        return copy;
+    }
 }
@@ -0,0 +1,146 @@
+package pl.lordtricker.ltrynek.client.config;
+
+import pl.lordtricker.ltrynek.client.LtrynekClient;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Indeks serwerów z configu: domeny w drzewie etykiet czytanych od końca (pl -> minestar -> ...)
+ * i profile po nazwie w mapie.
+ * <p>
+ * Adres jest dopasowywany jednym przejściem po etykietach – domena pasuje do siebie samej
+ * i do każdej swojej subdomeny. Przy kilku pasujących domenach wygrywa serwer wcześniejszy
+ * na liście, tak jak przy liniowym przeszukiwaniu. Wynik dla bieżącego połączenia jest
+ * zapamiętywany do rozłączenia albo przebudowy indeksu.
+ * <p>
+ * Indeks trzeba przebudować (rebuild) po każdej zmianie listy serwerów albo ich domen.
+ */
+public class ServerRegistry {
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        /** Serwer z tą domeną o najniższym indeksie na liście (-1 = żaden). */
+        int order = -1;
+    }
+
+    private static final class Index {
+        final Node root = new Node();
+        final ServerEntry[] servers;
+        final Map<String, ServerEntry> byProfile = new HashMap<>();
+
+        Index(ServerEntry[] servers) {
+            this.servers = servers;
+        }
+    }
+
+    private static final class Resolved {
+        final Index index;
+        final ServerEntry entry;
+
+        Resolved(Index index, ServerEntry entry) {
+            this.index = index;
+            this.entry = entry;
+        }
+    }
+
+    private static volatile Index index = new Index(new ServerEntry[0]);
+    private static volatile Resolved current = null;
+
+    /**
+     * Buduje indeks od nowa z listy serwerów configu.
+     */
+    public static void rebuild(ServersConfig config) {
+        ServerEntry[] servers = config == null || config.servers == null
+                ? new ServerEntry[0]
+                : config.servers.toArray(new ServerEntry[0]);
+        Index rebuilt = new Index(servers);
+        for (int i = 0; i < servers.length; i++) {
+            ServerEntry entry = servers[i];
+            if (entry.profileName != null) {
+                rebuilt.byProfile.putIfAbsent(entry.profileName.toLowerCase(Locale.ROOT), entry);
+            }
+            if (entry.domains == null) continue;
+            for (String domain : entry.domains) {
+                addDomain(rebuilt.root, domain, i);
+            }
+        }
+        index = rebuilt;
+        current = null;
+    }
+
+    /**
+     * Serwer, do którego pasuje adres (domena albo jej subdomena), lub null.
+     */
+    public static ServerEntry findByAddress(String address) {
+        Index idx = index;
+        String host = normalize(address);
+        if (host.isEmpty()) return null;
+
+        Node node = idx.root;
+        int best = -1;
+        int end = host.length();
+        while (end > 0 && node != null) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.children.get(host.substring(dot + 1, end));
+            if (node != null && node.order >= 0 && (best < 0 || node.order < best)) {
+                best = node.order;
+            }
+            end = dot;
+        }
+        return best < 0 ? null : idx.servers[best];
+    }
+
+    /**
+     * Serwer z podanym profilem (bez rozróżniania wielkości liter) lub null.
+     */
+    public static ServerEntry findByProfile(String profileName) {
+        if (profileName == null) return null;
+        return index.byProfile.get(profileName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Serwer bieżącego połączenia lub null – liczony raz na połączenie i wersję indeksu.
+     */
+    public static ServerEntry currentServer() {
+        Index idx = index;
+        Resolved resolved = current;
+        if (resolved == null || resolved.index != idx) {
+            resolved = new Resolved(idx, findByAddress(LtrynekClient.getServerAddress()));
+            current = resolved;
+        }
+        return resolved.entry;
+    }
+
+    /**
+     * Zapomina serwer bieżącego połączenia (wejście na serwer, rozłączenie).
+     */
+    public static void resetConnection() {
+        current = null;
+    }
+
+    private static void addDomain(Node root, String domain, int order) {
+        String host = normalize(domain);
+        if (host.isEmpty()) return;
+        Node node = root;
+        int end = host.length();
+        while (end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.children.computeIfAbsent(host.substring(dot + 1, end), k -> new Node());
+            end = dot;
+        }
+        if (node.order < 0 || order < node.order) {
+            node.order = order;
+        }
+    }
+
+    private static String normalize(String host) {
+        if (host == null) return "";
+        String normalized = host.trim().toLowerCase(Locale.ROOT);
+        while (normalized.endsWith(".")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+}
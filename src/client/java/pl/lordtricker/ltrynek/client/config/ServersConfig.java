@@ -7,4 +7,25 @@ public class ServersConfig {
     public String defaultProfile = "default";
     public List<ServerEntry> servers = new ArrayList<>();
     public boolean soundsEnabled = false;
+    public boolean eventScanning = true;
+
+    /**
+     * Deduplikacja ofert w sesji wyszukiwania: maksymalna liczba zapamiętanych odcisków (nadmiar
+     * wypiera najdawniej widziane), czas ich ważności (0 = do końca sesji) i czy numer slotu
+     * wchodzi do odcisku.
+     */
+    public int searchDedupCapacity = 65536;
+    public int searchDedupTtlSeconds = 0;
+    public boolean searchDedupIncludeSlot = true;
+
+    /**
+     * Historia ofert zapisywana w LT-Mods/LT-Rynek/history i liczba dni, po której jest usuwana.
+     */
+    public boolean historyEnabled = true;
+    public int historyRetentionDays = 180;
+
+    /**
+     * Przeładowanie mini configu zaraz po zmianie pliku (np. w zewnętrznym edytorze).
+     */
+    public boolean watchConfigFiles = true;
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package pl.lordtricker.ltrynek.client.manager;
+
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import pl.lordtricker.ltrynek.client.config.ConfigLoader;
+import pl.lordtricker.ltrynek.client.config.ServersConfig;
+import pl.lordtricker.ltrynek.core.history.HistoryRecord;
+import pl.lordtricker.ltrynek.core.history.HistoryStore;
+import pl.lordtricker.ltrynek.core.history.PriceRollups;
+import pl.lordtricker.ltrynek.core.history.RollupSummary;
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.scanner.ScanVerdict;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.core.util.FingerprintSet;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Zapis każdej sparsowanej oferty do historii (HistoryStore w LT-Mods/LT-Rynek/history).
+ * Oferta jest zapisywana pod kluczem materiału, dopasowanego wpisu listy cen
+ * i terminów aktywnego wyszukiwania – tak, by /ltr history znalazło ją po każdym z nich.
+ * Te same rekordy zasilają agregaty minutowe/godzinowe/dzienne (PriceRollups), z których
+ * korzysta /ltr history.
+ */
+public class ClientHistoryManager {
+    private static final String HISTORY_DIR_NAME = "history";
+    /** Ta sama oferta widziana ponownie w ciągu godziny nie jest zapisywana drugi raz. */
+    private static final long RECORD_DEDUP_TTL_MILLIS = 60 * 60 * 1000L;
+    private static final int RECORD_DEDUP_CAPACITY = 65536;
+
+    private static HistoryStore store = null;
+    private static PriceRollups rollups = null;
+    private static final FingerprintSet recorded = new FingerprintSet(RECORD_DEDUP_CAPACITY, RECORD_DEDUP_TTL_MILLIS);
+
+    public static void init(ServersConfig config) {
+        if (!config.historyEnabled) return;
+        long retentionMillis = Math.max(0, config.historyRetentionDays) * 24L * 60 * 60 * 1000;
+        store = new HistoryStore(ConfigLoader.getModConfigDir().resolve(HISTORY_DIR_NAME), retentionMillis);
+        rollups = new PriceRollups(retentionMillis);
+        store.start(rollups);
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> store.close());
+    }
+
+    /**
+     * Historia albo null, jeśli jest wyłączona w configu.
+     */
+    public static HistoryStore getStore() {
+        return store;
+    }
+
+    /**
+     * Podsumowanie cen klucza z ostatnich dni albo null, gdy brak danych lub historia jest wyłączona.
+     */
+    public static RollupSummary summarize(String profile, String compositeKey, int days) {
+        if (rollups == null) return null;
+        long now = System.currentTimeMillis();
+        return rollups.summarize(profile, compositeKey, now - days * 24L * 60 * 60 * 1000, now, now);
+    }
+
+    public static void recordListing(Listing listing, ScanVerdict verdict, long fingerprint) {
+        if (store == null || !verdict.hasPrice()) return;
+        long now = System.currentTimeMillis();
+        if (!recorded.add(fingerprint, now)) return;
+
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(listing.materialId.toLowerCase() + "|||");
+        if (verdict.matchedEntry != null) {
+            keys.add(CompositeKeyUtil.getCompositeKeyFromEntry(verdict.matchedEntry));
+        }
+        if (ClientSearchListManager.isSearchActive()) {
+            ClientSearchListManager.forEachMatchingTerm(listing.name, listing.loreLines, listing.materialId,
+                    listing.enchants, keys::add);
+        }
+
+        String profile = ClientPriceListManager.getActiveProfile();
+        for (String key : keys) {
+            HistoryRecord record = new HistoryRecord(now, profile, key, verdict.unitPrice, verdict.stackSize, fingerprint);
+            store.append(record);
+            rollups.add(record, now);
+        }
+    }
+}
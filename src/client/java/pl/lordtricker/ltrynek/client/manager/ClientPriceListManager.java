@@ -1,35 +1,38 @@
 package pl.lordtricker.ltrynek.client.manager;
 
-import pl.lordtricker.ltrynek.client.config.PriceEntry;
-import pl.lordtricker.ltrynek.client.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.client.config.CompiledProfile;
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.core.util.EnchantSet;
+import pl.lordtricker.ltrynek.core.util.MatchIndex;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ClientPriceListManager {
 
     /**
-     * Struktura: profile -> lista wpisów typu PriceEntry.
-     * Każdy wpis zawiera: name, lore, material, enchants, maxPrice.
+     * Struktura: profil -> niezmienny snapshot (wpisy, indeks dopasowań, ustawienia).
+     * Zmiana tworzy nowy snapshot i kopię mapy, publikowaną jednym zapisem pola volatile –
+     * czytający nigdy nie blokują i zawsze widzą spójny profil. Zmiany są serializowane (synchronized).
      */
-    private static final Map<String, List<PriceEntry>> priceLists = new HashMap<>();
+    private static volatile Map<String, ProfileSnapshot> profiles = Collections.emptyMap();
 
-    /**
-     * CustomLookup – w razie potrzeby, choć dane można przenieść do PriceEntry.
-     */
-    private static final Map<String, Map<String, String>> customLookup = new HashMap<>();
-
-    private static String activeProfile = "default";
+    private static volatile String activeProfile = "default";
 
     /**
-     * Ustawia aktywny profil – jeśli nie istnieje, tworzy nową listę wpisów.
+     * Ustawia aktywny profil – jeśli nie istnieje, tworzy pusty.
      */
-    public static void setActiveProfile(String profile) {
+    public static synchronized void setActiveProfile(String profile) {
+        if (!profiles.containsKey(profile)) {
+            publish(ProfileSnapshot.empty(profile, null));
+        }
         activeProfile = profile;
-        priceLists.computeIfAbsent(profile, k -> new ArrayList<>());
-        customLookup.computeIfAbsent(profile, k -> new HashMap<>());
     }
 
     public static String getActiveProfile() {
@@ -37,32 +40,82 @@ public class ClientPriceListManager {
     }
 
     /**
-     * Zwraca listę wszystkich profili, jakie mamy w priceLists.
+     * Aktualny snapshot profilu albo null, jeśli profil nie istnieje.
+     */
+    public static ProfileSnapshot getSnapshot(String profile) {
+        return profiles.get(profile);
+    }
+
+    /**
+     * Snapshot aktywnego profilu (mapa jest publikowana przed zmianą nazwy, więc zawsze istnieje).
+     */
+    public static ProfileSnapshot getActiveSnapshot() {
+        String profile = activeProfile;
+        ProfileSnapshot snapshot = profiles.get(profile);
+        return snapshot != null ? snapshot : ProfileSnapshot.empty(profile, null);
+    }
+
+    /**
+     * Zwraca listę wszystkich profili, jakie mamy w pamięci.
      */
     public static String listProfiles() {
-        if (priceLists.isEmpty()) {
+        if (profiles.isEmpty()) {
             return "No profiles defined.";
         }
-        return String.join(", ", priceLists.keySet());
+        return String.join(", ", profiles.keySet());
     }
 
     /**
      * Dodaje lub ustawia wpis (name, lore, material, enchants, maxPrice) w aktywnym profilu.
+     * Wpis o tym samym composite key jest usuwany, a nowy trafia na koniec listy – ta sama
+     * zasada obowiązuje przy imporcie (addPriceEntries) i wczytywaniu pliku (ProfilePrices).
      */
-    public static void addPriceEntry(PriceEntry entry) {
+    public static synchronized void addPriceEntry(PriceEntry entry) {
         String compositeKey = CompositeKeyUtil.getCompositeKeyFromEntry(entry);
+        ProfileSnapshot current = snapshotOrEmpty(activeProfile);
 
-        List<PriceEntry> entries = priceLists.computeIfAbsent(activeProfile, k -> new ArrayList<>());
-
-        entries.removeIf(pe -> {
-            String keyFromEntry = CompositeKeyUtil.getCompositeKeyFromEntry(pe);
-            return keyFromEntry.equals(compositeKey);
-        });
-
+        List<PriceEntry> entries = new ArrayList<>(current.entries.size() + 1);
+        for (PriceEntry pe : current.entries) {
+            if (!CompositeKeyUtil.getCompositeKeyFromEntry(pe).equals(compositeKey)) {
+                entries.add(pe);
+            }
+        }
         entries.add(entry);
+        publish(current.withEntries(entries));
     }
 
-    public static void addPriceEntry(String rawItem, double maxPrice) {
+    /**
+     * Dodaje wiele wpisów do profilu naraz (np. import listy), tak jak kolejne addPriceEntry:
+     * wpis o istniejącym composite key jest usuwany, a nowy trafia na koniec (przy powtórzeniach
+     * w partii wygrywa ostatni). Jedno przejście po liście profilu, indeks jest budowany raz,
+     * po całej partii. Zwraca liczbę nowych wpisów.
+     */
+    public static synchronized int addPriceEntries(String profile, List<PriceEntry> batch) {
+        ProfileSnapshot current = snapshotOrEmpty(profile);
+        Map<String, PriceEntry> incoming = new LinkedHashMap<>(batch.size() * 2);
+        for (PriceEntry entry : batch) {
+            String compositeKey = CompositeKeyUtil.getCompositeKeyFromEntry(entry);
+            incoming.remove(compositeKey);
+            incoming.put(compositeKey, entry);
+        }
+        List<PriceEntry> entries = new ArrayList<>(current.entries.size() + incoming.size());
+        int replaced = 0;
+        for (PriceEntry pe : current.entries) {
+            if (incoming.containsKey(CompositeKeyUtil.getCompositeKeyFromEntry(pe))) {
+                replaced++;
+            } else {
+                entries.add(pe);
+            }
+        }
+        entries.addAll(incoming.values());
+        publish(current.withEntries(entries));
+        return incoming.size() - replaced;
+    }
+
+    /**
+     * Dodaje wpis z nazwy przedmiotu (format komendy /ltr add) i ceny w groszach.
+     */
+    public static void addPriceEntry(String rawItem, long maxPrice) {
         String compositeKey = CompositeKeyUtil.createCompositeKey(rawItem);
         String[] parts = compositeKey.split("\\|", -1);
         if (parts.length < 3) {
@@ -80,79 +133,99 @@ public class ClientPriceListManager {
     /**
      * Usuwa wpis z aktywnego profilu na podstawie rawItem.
      */
-    public static void removePriceEntry(String rawItem) {
+    public static synchronized void removePriceEntry(String rawItem) {
         String compositeKey = CompositeKeyUtil.createCompositeKey(rawItem);
-        List<PriceEntry> entries = priceLists.get(activeProfile);
-        if (entries != null) {
-            entries.removeIf(pe -> {
-                String keyFromEntry = (pe.name + "|" +
-                        (pe.lore == null ? "" : pe.lore) + "|" +
-                        (pe.material == null ? "" : pe.material) + "|" +
-                        (pe.enchants == null ? "" : pe.enchants)).toLowerCase();
-                return keyFromEntry.equals(compositeKey);
-            });
+        ProfileSnapshot current = profiles.get(activeProfile);
+        if (current != null) {
+            List<PriceEntry> entries = new ArrayList<>(current.entries.size());
+            for (PriceEntry pe : current.entries) {
+                if (!CompositeKeyUtil.getCompositeKeyFromEntry(pe).equals(compositeKey)) {
+                    entries.add(pe);
+                }
+            }
+            publish(current.withEntries(entries));
         }
     }
 
     /**
-     * Wyszukuje wpis PriceEntry, który pasuje do przekazanych parametrów (name, lore, material).
-     * Jeśli chcesz uwzględnić enchanty, zmodyfikuj logikę porównania.
+     * Wyszukuje wpis PriceEntry, który pasuje do przekazanych parametrów (name, lore, material, enchants).
+     * Korzysta z indeksu profilu, więc koszt nie rośnie liniowo z liczbą wpisów.
      */
-    public static PriceEntry findMatchingPriceEntry(String noColorName, List<String> loreLines, String materialId, String enchantments) {
-        List<PriceEntry> entries = priceLists.get(activeProfile);
-        if (entries == null) return null;
-        for (PriceEntry pe : entries) {
-            if (pe.material != null && !pe.material.isEmpty()) {
-                if (!materialId.equalsIgnoreCase(pe.material)) {
-                    continue;
-                }
-            }
-            if (!pe.name.isEmpty()) {
-                String lowerName = noColorName.toLowerCase();
-                String lowerMaterial = materialId.toLowerCase();
-                String lowerEntryName = pe.name.toLowerCase();
-                if (!lowerName.contains(lowerEntryName) && !lowerMaterial.contains(lowerEntryName)) {
-                    continue;
-                }
-            }
-            if (pe.lore != null && !pe.lore.isEmpty()) {
-                boolean foundLore = false;
-                for (String line : loreLines) {
-                    if (line.toLowerCase().contains(pe.lore.toLowerCase())) {
-                        foundLore = true;
-                        break;
-                    }
-                }
-                if (!foundLore) {
-                    continue;
-                }
-            }
-            if (pe.enchants != null && !pe.enchants.isEmpty()) {
-                if (enchantments == null || enchantments.isEmpty() ||
-                        !enchantments.toLowerCase().contains(pe.enchants.toLowerCase())) {
-                    continue;
-                }
-            }
-            return pe;
-        }
-        return null;
+    public static PriceEntry findMatchingPriceEntry(String noColorName, List<String> loreLines, String materialId, EnchantSet enchantments) {
+        return getActiveSnapshot().findMatch(noColorName, loreLines, materialId, enchantments);
     }
 
+    public static PriceEntry findMatchingPriceEntry(Listing listing) {
+        return getActiveSnapshot().findMatch(listing);
+    }
 
+    /**
+     * Podmienia listę i indeks jednego profilu (zbudowane poza wątkiem klienta), bez ruszania pozostałych.
+     */
+    public static synchronized void replaceProfile(String profile, List<PriceEntry> entries, MatchIndex index) {
+        publish(snapshotOrEmpty(profile).withEntries(entries, index));
+    }
 
     /**
-     * Daje dostęp do wszystkich profili (przydatne np. do zapisywania w configu).
+     * Jak wyżej, razem z nowymi ustawieniami – jedna publikacja, bez chwili ze starą listą i nowym regexem.
      */
-    public static Map<String, List<PriceEntry>> getAllProfiles() {
-        return priceLists;
+    public static synchronized void replaceProfile(String profile, CompiledProfile settings, List<PriceEntry> entries, MatchIndex index) {
+        publish(snapshotOrEmpty(profile).withSettings(settings).withEntries(entries, index));
     }
 
     /**
-     * Czyści wszystko i ustawia domyślny profil.
+     * Podmienia skompilowane ustawienia profili (po wczytaniu/przeładowaniu configu) jedną publikacją.
+     * Profile spoza mapy tracą ustawienia, ich listy cen zostają.
      */
-    public static void clearAllProfiles() {
-        priceLists.clear();
-        customLookup.clear();
+    static synchronized void replaceAllSettings(Map<String, CompiledProfile> settings) {
+        Map<String, ProfileSnapshot> updated = new HashMap<>();
+        for (ProfileSnapshot snapshot : profiles.values()) {
+            updated.put(snapshot.profileName, snapshot.withSettings(settings.get(snapshot.profileName)));
+        }
+        for (Map.Entry<String, CompiledProfile> e : settings.entrySet()) {
+            updated.putIfAbsent(e.getKey(), ProfileSnapshot.empty(e.getKey(), e.getValue()));
+        }
+        profiles = Collections.unmodifiableMap(updated);
+    }
+
+    static synchronized void replaceSettings(String profile, CompiledProfile settings) {
+        publish(snapshotOrEmpty(profile).withSettings(settings));
+    }
+
+    public static MatchIndex buildIndex(List<PriceEntry> entries) {
+        MatchIndex.Builder builder = MatchIndex.builder();
+        for (PriceEntry pe : entries) {
+            builder.add(pe.name, pe.lore, pe.material, pe.enchants);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Czyści listy cen wszystkich profili (ustawienia z configu zostają) i ustawia domyślny profil.
+     */
+    public static synchronized void clearAllProfiles() {
+        Map<String, ProfileSnapshot> cleared = new HashMap<>();
+        for (ProfileSnapshot snapshot : profiles.values()) {
+            if (snapshot.settings != null) {
+                cleared.put(snapshot.profileName, ProfileSnapshot.empty(snapshot.profileName, snapshot.settings));
+            }
+        }
+        cleared.putIfAbsent("default", ProfileSnapshot.empty("default", null));
+        profiles = Collections.unmodifiableMap(cleared);
         activeProfile = "default";
     }
+
+    private static ProfileSnapshot snapshotOrEmpty(String profile) {
+        ProfileSnapshot current = profiles.get(profile);
+        return current != null ? current : ProfileSnapshot.empty(profile, null);
+    }
+
+    /**
+     * Publikuje nowy snapshot profilu: kopia mapy i jeden zapis pola volatile.
+     */
+    private static void publish(ProfileSnapshot snapshot) {
+        Map<String, ProfileSnapshot> updated = new HashMap<>(profiles);
+        updated.put(snapshot.profileName, snapshot);
+        profiles = Collections.unmodifiableMap(updated);
+    }
 }
@@ -0,0 +1,42 @@
+package pl.lordtricker.ltrynek.client.manager;
+
+import pl.lordtricker.ltrynek.client.config.CompiledProfile;
+import pl.lordtricker.ltrynek.client.config.ServerEntry;
+import pl.lordtricker.ltrynek.client.config.ServersConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Skompilowane ustawienia profili (regex, kolory, dźwięki). Są częścią snapshotu profilu
+ * w ClientPriceListManager, więc skaner dostaje je razem ze spójną listą cen.
+ */
+public class ClientProfileManager {
+
+    /**
+     * Kompiluje wszystkie profile z configu. Wywoływane po wczytaniu i przeładowaniu configu.
+     */
+    public static void rebuild(ServersConfig config) {
+        Map<String, CompiledProfile> rebuilt = new HashMap<>();
+        if (config != null && config.servers != null) {
+            for (ServerEntry entry : config.servers) {
+                if (entry.profileName != null) {
+                    rebuilt.putIfAbsent(entry.profileName, CompiledProfile.compile(entry));
+                }
+            }
+        }
+        ClientPriceListManager.replaceAllSettings(rebuilt);
+    }
+
+    /**
+     * Podmienia ustawienia jednego profilu (nowy snapshot – czytający zawsze widzą spójny stan).
+     */
+    public static void put(String profileName, CompiledProfile profile) {
+        ClientPriceListManager.replaceSettings(profileName, profile);
+    }
+
+    public static CompiledProfile get(String profileName) {
+        ProfileSnapshot snapshot = ClientPriceListManager.getSnapshot(profileName);
+        return snapshot == null ? null : snapshot.settings;
+    }
+}
@@ -2,27 +2,38 @@ package pl.lordtricker.ltrynek.client.manager;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.text.Text;
-import pl.lordtricker.ltrynek.client.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.client.LtrynekClient;
+import pl.lordtricker.ltrynek.client.config.ServersConfig;
+import pl.lordtricker.ltrynek.client.scheduler.TickScheduler;
 import pl.lordtricker.ltrynek.client.util.Messages;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+import pl.lordtricker.ltrynek.core.util.EnchantSet;
+import pl.lordtricker.ltrynek.core.util.FingerprintSet;
+import pl.lordtricker.ltrynek.core.util.MatchIndex;
+import pl.lordtricker.ltrynek.core.util.Money;
+import pl.lordtricker.ltrynek.core.util.QuantileSketch;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.function.Consumer;
 
-import static pl.lordtricker.ltrynek.client.util.CompositeKeyUtil.createCompositeKey;
+import static pl.lordtricker.ltrynek.core.util.CompositeKeyUtil.createCompositeKey;
 
 public class ClientSearchListManager {
     private static final List<String> searchList = new ArrayList<>();
     private static final Map<String, Stats> statsMap = new HashMap<>();
     private static boolean searchActive = false;
-    private static Timer searchTimer = null;
-    private static final Set<String> alreadyCountedSession = new HashSet<>();
+    private static final String SEARCH_EXPIRY_TASK_KEY = "search-expiry";
+    private static final long SEARCH_DURATION_TICKS = 5 * 60 * TickScheduler.TICKS_PER_SECOND; // 5 minut
+    private static FingerprintSet countedListings = newCountedListings();
+    private static int revision = 0;
+
+    /**
+     * Skompilowane terminy wyszukiwania (indeks = pozycja w searchList); null = do przebudowy.
+     */
+    private static MatchIndex searchIndex = null;
 
     /**
      * Dodaje nowy przedmiot do listy wyszukiwania (w formacie: name(lore)[material]{enchants}).
@@ -32,6 +43,8 @@ public class ClientSearchListManager {
         if (!searchList.contains(compositeKey)) {
             searchList.add(compositeKey);
             statsMap.put(compositeKey, new Stats());
+            searchIndex = null;
+            revision++;
         }
     }
 
@@ -39,6 +52,8 @@ public class ClientSearchListManager {
         String compositeKey = createCompositeKey(rawItem);
         searchList.remove(compositeKey);
         statsMap.remove(compositeKey);
+        searchIndex = null;
+        revision++;
     }
 
     public static List<String> getSearchList() {
@@ -47,33 +62,24 @@ public class ClientSearchListManager {
 
     public static void startSearch() {
         searchActive = true;
+        revision++;
         for (String key : searchList) {
             statsMap.put(key, new Stats());
         }
-        alreadyCountedSession.clear();
-        if (searchTimer != null) {
-            searchTimer.cancel();
-        }
-        searchTimer = new Timer();
-        searchTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                stopSearch();
-                MinecraftClient.getInstance().execute(() -> {
-                    if (MinecraftClient.getInstance().player != null) {
-                        MinecraftClient.getInstance().player.sendMessage(Text.literal(Messages.get("command.searchlist.expired")), false);
-                    }
-                });
+        countedListings = newCountedListings();
+        searchIndex = compileSearchList();
+        TickScheduler.schedule(SEARCH_EXPIRY_TASK_KEY, SEARCH_DURATION_TICKS, () -> {
+            stopSearch();
+            if (MinecraftClient.getInstance().player != null) {
+                MinecraftClient.getInstance().player.sendMessage(Text.literal(Messages.get("command.searchlist.expired")), false);
             }
-        }, 300_000); // 5 minut = 300000 ms
+        });
     }
 
     public static void stopSearch() {
         searchActive = false;
-        if (searchTimer != null) {
-            searchTimer.cancel();
-            searchTimer = null;
-        }
+        revision++;
+        TickScheduler.cancel(SEARCH_EXPIRY_TASK_KEY);
     }
 
     public static boolean isSearchActive() {
@@ -81,20 +87,36 @@ public class ClientSearchListManager {
     }
 
     /**
-     * Sprawdza, czy dany unikalny klucz (np. aukcja) został już zliczony w tej sesji.
+     * Licznik zmian listy wyszukiwania i sesji – zmienia się przy add/remove/start/stop.
+     */
+    public static int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Zapamiętuje odcisk oferty; zwraca true, jeśli w tej sesji nie była jeszcze zliczona.
      */
-    public static boolean isAlreadyCounted(String key) {
-        return alreadyCountedSession.contains(key);
+    public static boolean markAsCounted(long fingerprint) {
+        return countedListings.add(fingerprint, System.currentTimeMillis());
     }
 
-    public static void markAsCounted(String key) {
-        alreadyCountedSession.add(key);
+    public static boolean isDedupIncludingSlot() {
+        ServersConfig config = LtrynekClient.serversConfig;
+        return config == null || config.searchDedupIncludeSlot;
+    }
+
+    private static FingerprintSet newCountedListings() {
+        ServersConfig config = LtrynekClient.serversConfig;
+        if (config == null) {
+            return new FingerprintSet(new ServersConfig().searchDedupCapacity, 0);
+        }
+        return new FingerprintSet(config.searchDedupCapacity, config.searchDedupTtlSeconds * 1000L);
     }
 
     /**
-     * Aktualizuje statystyki (cena/sztuka, ilość) dla podanego compositeKey.
+     * Aktualizuje statystyki (cena/sztuka w groszach, ilość) dla podanego compositeKey.
      */
-    public static void updateStats(String compositeKey, double unitPrice, int quantity) {
+    public static void updateStats(String compositeKey, long unitPrice, int quantity) {
         Stats s = statsMap.get(compositeKey);
         if (s == null) {
             s = new Stats();
@@ -103,71 +125,64 @@ public class ClientSearchListManager {
         s.update(unitPrice, quantity);
     }
 
-    public static Stats getStats(String rawItem) {
-        return statsMap.get(rawItem.toLowerCase());
+    /**
+     * Jednym przejściem znajduje wszystkie terminy z listy pasujące do przedmiotu
+     * i aktualizuje ich statystyki.
+     */
+    public static void updateStatsForListing(String noColorName, List<String> loreLines, String materialId, EnchantSet enchantments,
+                                             long unitPrice, int quantity) {
+        forEachMatchingTerm(noColorName, loreLines, materialId, enchantments,
+                compositeKey -> updateStats(compositeKey, unitPrice, quantity));
     }
 
     /**
-     * Pomocnicza metoda do sprawdzania, czy zeskanowany item pasuje do compositeKey z listy.
-     * Rozbijamy compositeKey na cztery części: name, lore, material, enchants.
-     * Na razie porównujemy tylko name, lore oraz material.
+     * Zgłasza composite key każdego terminu z listy wyszukiwania pasującego do przedmiotu.
      */
-    public static boolean matchesSearchTerm(String compositeKey, String noColorName, List<String> loreLines, String materialId, String enchantments) {
-        String[] parts = CompositeKeyUtil.splitCompositeKey(compositeKey);
-        String baseName = parts[0];
-        String lore = parts[1];
-        String material = parts[2];
-        String compEnchants = parts.length > 3 ? parts[3] : "";
-
-        String lowerName = noColorName.toLowerCase();
-        String lowerMaterial = materialId.toLowerCase();
-        String lowerBaseName = baseName.toLowerCase();
-        boolean nameMatches = lowerName.contains(lowerBaseName) || lowerMaterial.contains(lowerBaseName);
-
-        boolean loreMatches = true;
-        if (!lore.isEmpty()) {
-            loreMatches = false;
-            for (String line : loreLines) {
-                if (line.toLowerCase().contains(lore.toLowerCase())) {
-                    loreMatches = true;
-                    break;
-                }
-            }
-        }
-
-        boolean materialMatches = true;
-        if (!material.isEmpty()) {
-            materialMatches = materialId.equalsIgnoreCase(material);
+    public static void forEachMatchingTerm(String noColorName, List<String> loreLines, String materialId, EnchantSet enchantments,
+                                           Consumer<String> sink) {
+        if (searchIndex == null) {
+            searchIndex = compileSearchList();
         }
+        searchIndex.forEachMatch(noColorName, loreLines, materialId, enchantments,
+                id -> sink.accept(searchList.get(id)));
+    }
 
-        boolean enchantMatches = true;
-        if (!compEnchants.isEmpty()) {
-            if (enchantments == null || enchantments.isEmpty() ||
-                    !enchantments.toLowerCase().contains(compEnchants.toLowerCase())) {
-                enchantMatches = false;
-            }
+    private static MatchIndex compileSearchList() {
+        MatchIndex.Builder builder = MatchIndex.builder();
+        for (String compositeKey : searchList) {
+            String[] parts = CompositeKeyUtil.splitCompositeKey(compositeKey);
+            builder.add(parts[0], parts[1], parts[2], parts.length > 3 ? parts[3] : "");
         }
-
-        return nameMatches && loreMatches && materialMatches && enchantMatches;
+        return builder.build();
     }
 
+    public static Stats getStats(String rawItem) {
+        return statsMap.get(rawItem.toLowerCase());
+    }
 
+    /**
+     * Statystyki cen dla jednego wyszukiwanego przedmiotu, w groszach. Min, max i suma są liczone
+     * dokładnie na long (średnia bez dryfu), a mediana i kwartyle pochodzą z ważonego szkicu kwantyli
+     * (dokładnego, dopóki różnych cen jest mniej niż QuantileSketch.COMPRESSION), więc pamięć
+     * nie rośnie z liczbą ofert.
+     */
     public static class Stats {
         private int count;
-        private double sum;
-        private double min;
-        private double max;
-        private final List<Double> values;
+        private long sum;
+        private long min;
+        private long max;
+        private final QuantileSketch sketch;
+        private long[] quartiles;
 
         public Stats() {
             this.count = 0;
-            this.sum = 0.0;
-            this.min = Double.MAX_VALUE;
-            this.max = Double.MIN_VALUE;
-            this.values = new ArrayList<>();
+            this.sum = 0;
+            this.min = Long.MAX_VALUE;
+            this.max = Long.MIN_VALUE;
+            this.sketch = new QuantileSketch();
         }
 
-        public void update(double unitPrice, int quantity) {
+        public void update(long unitPrice, int quantity) {
             count += quantity;
             sum += unitPrice * quantity;
             if (unitPrice < min) {
@@ -176,66 +191,74 @@ public class ClientSearchListManager {
             if (unitPrice > max) {
                 max = unitPrice;
             }
-            for (int i = 0; i < quantity; i++) {
-                values.add(unitPrice);
-            }
+            sketch.add(unitPrice, quantity);
+            quartiles = null;
         }
 
         public int getCount() {
             return count;
         }
 
-        public double getAverage() {
-            return count == 0 ? 0 : sum / count;
+        public long getAverage() {
+            return count == 0 ? 0 : Money.perUnit(sum, count);
         }
 
-        public double getMin() {
+        public long getMin() {
             return count == 0 ? 0 : min;
         }
 
-        public double getMax() {
+        public long getMax() {
             return count == 0 ? 0 : max;
         }
 
-        public double getMedian() {
-            if (values.isEmpty()) return 0;
-            List<Double> sorted = new ArrayList<>(values);
-            Collections.sort(sorted);
-            int n = sorted.size();
-            if (n % 2 == 1) {
-                return sorted.get(n / 2);
-            } else {
-                return (sorted.get(n / 2 - 1) + sorted.get(n / 2)) / 2.0;
-            }
+        public long getMedian() {
+            return quartiles()[1];
+        }
+
+        public long getQuartile1() {
+            return quartiles()[0];
         }
 
-        public double getQuartile1() {
-            if (values.isEmpty()) return 0;
-            List<Double> sorted = new ArrayList<>(values);
-            Collections.sort(sorted);
-            int n = sorted.size();
-            List<Double> lowerHalf = sorted.subList(0, n / 2);
-            return median(lowerHalf);
+        public long getQuartile3() {
+            return quartiles()[2];
         }
 
-        public double getQuartile3() {
-            if (values.isEmpty()) return 0;
-            List<Double> sorted = new ArrayList<>(values);
-            Collections.sort(sorted);
-            int n = sorted.size();
-            List<Double> upperHalf = (n % 2 == 0)
-                    ? sorted.subList(n / 2, n)
-                    : sorted.subList(n / 2 + 1, n);
-            return median(upperHalf);
+        /**
+         * Q1, mediana i Q3 z jednego zapytania do szkicu (wynik trzymany do następnego update).
+         * Kwartyle liczone jak wcześniej – mediany dolnej i górnej połowy bez elementu środkowego.
+         */
+        private long[] quartiles() {
+            if (quartiles != null) return quartiles;
+            long n = sketch.getTotalWeight();
+            if (n == 0) {
+                quartiles = new long[3];
+                return quartiles;
+            }
+            long half = n / 2;
+            long upperOffset = n - half;
+            double[] ranks = new double[6];
+            medianRanks(0, half == 0 ? n : half, ranks, 0);
+            medianRanks(0, n, ranks, 2);
+            medianRanks(half == 0 ? 0 : upperOffset, half == 0 ? n : half, ranks, 4);
+            double[] values = sketch.valuesAtRanks(ranks);
+            quartiles = new long[]{
+                    Math.round((values[0] + values[1]) / 2.0),
+                    Math.round((values[2] + values[3]) / 2.0),
+                    Math.round((values[4] + values[5]) / 2.0)
+            };
+            return quartiles;
         }
 
-        private double median(List<Double> list) {
-            int size = list.size();
-            if (size == 0) return 0;
+        /**
+         * Pozycje wartości, których średnia jest medianą fragmentu [offset, offset + size).
+         */
+        private static void medianRanks(long offset, long size, double[] ranks, int at) {
             if (size % 2 == 1) {
-                return list.get(size / 2);
+                ranks[at] = offset + size / 2;
+                ranks[at + 1] = ranks[at];
             } else {
-                return (list.get(size / 2 - 1) + list.get(size / 2)) / 2.0;
+                ranks[at] = offset + size / 2 - 1;
+                ranks[at + 1] = offset + size / 2;
             }
         }
     }
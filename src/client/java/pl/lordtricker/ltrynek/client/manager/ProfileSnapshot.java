@@ -0,0 +1,72 @@
+package pl.lordtricker.ltrynek.client.manager;
+
+import pl.lordtricker.ltrynek.client.config.CompiledProfile;
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.scanner.PriceMatcher;
+import pl.lordtricker.ltrynek.core.util.EnchantSet;
+import pl.lordtricker.ltrynek.core.util.MatchIndex;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Niezmienny stan jednego profilu: lista cen, indeks dopasowań zbudowany z tej listy
+ * i skompilowane ustawienia (regex, kolory, dźwięki).
+ * <p>
+ * Każda zmiana tworzy nowy snapshot z nową wersją, więc ten, kto go trzyma (skaner, eksport,
+ * zapis configu), może go czytać z dowolnego wątku bez blokad – lista i indeks zawsze do siebie pasują.
+ * Wpisów nie wolno modyfikować; zmiana ceny to nowy wpis w nowym snapshocie.
+ */
+public final class ProfileSnapshot implements PriceMatcher {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    public final String profileName;
+    /** Rośnie przy każdym nowym snapshocie (dowolnego profilu). */
+    public final long version;
+    public final List<PriceEntry> entries;
+    public final MatchIndex index;
+    /** null, jeśli profil nie ma wpisu w configu. */
+    public final CompiledProfile settings;
+
+    private ProfileSnapshot(String profileName, List<PriceEntry> entries, MatchIndex index, CompiledProfile settings) {
+        this.profileName = profileName;
+        this.version = VERSIONS.incrementAndGet();
+        this.entries = List.copyOf(entries);
+        this.index = index;
+        this.settings = settings;
+    }
+
+    static ProfileSnapshot empty(String profileName, CompiledProfile settings) {
+        return new ProfileSnapshot(profileName, List.of(), MatchIndex.builder().build(), settings);
+    }
+
+    ProfileSnapshot withEntries(List<PriceEntry> entries) {
+        return withEntries(entries, ClientPriceListManager.buildIndex(entries));
+    }
+
+    /**
+     * Nowa lista z gotowym indeksem (zbudowanym z tej samej listy, np. w wątku w tle).
+     */
+    ProfileSnapshot withEntries(List<PriceEntry> entries, MatchIndex index) {
+        return new ProfileSnapshot(profileName, entries, index, settings);
+    }
+
+    ProfileSnapshot withSettings(CompiledProfile settings) {
+        return new ProfileSnapshot(profileName, entries, index, settings);
+    }
+
+    /**
+     * Pierwszy (w kolejności listy) wpis pasujący do przedmiotu albo null.
+     */
+    public PriceEntry findMatch(String noColorName, List<String> loreLines, String materialId, EnchantSet enchantments) {
+        if (entries.isEmpty()) return null;
+        int id = index.firstMatch(noColorName, loreLines, materialId, enchantments);
+        return id < 0 ? null : entries.get(id);
+    }
+
+    @Override
+    public PriceEntry findMatch(Listing listing) {
+        return findMatch(listing.name, listing.loreLines, listing.materialId, listing.enchants);
+    }
+}
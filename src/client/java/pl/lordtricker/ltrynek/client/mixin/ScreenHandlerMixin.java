@@ -0,0 +1,27 @@
+package pl.lordtricker.ltrynek.client.mixin;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.screen.ScreenHandler;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import pl.lordtricker.ltrynek.client.scanner.ListingScanner;
+
+import java.util.List;
+
+@Mixin(ScreenHandler.class)
+public abstract class ScreenHandlerMixin {
+
+	// Pakiet InventoryS2CPacket – pełna zawartość kontenera
+	@Inject(method = "updateSlotStacks", at = @At("TAIL"))
+	private void onUpdateSlotStacks(int revision, List<ItemStack> stacks, ItemStack cursorStack, CallbackInfo ci) {
+		ListingScanner.onContentsUpdate((ScreenHandler) (Object) this);
+	}
+
+	// Pakiet ScreenHandlerSlotUpdateS2CPacket – pojedynczy slot
+	@Inject(method = "setStackInSlot", at = @At("TAIL"))
+	private void onSetStackInSlot(int slot, int revision, ItemStack stack, CallbackInfo ci) {
+		ListingScanner.onSlotUpdate((ScreenHandler) (Object) this, slot);
+	}
+}
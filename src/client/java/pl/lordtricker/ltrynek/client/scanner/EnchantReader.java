@@ -0,0 +1,56 @@
+package pl.lordtricker.ltrynek.client.scanner;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.ItemEnchantmentsComponent;
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.entry.RegistryEntry;
+import pl.lordtricker.ltrynek.core.util.EnchantMapper;
+import pl.lordtricker.ltrynek.core.util.EnchantSet;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+/**
+ * Odczyt enchantów bezpośrednio z komponentów przedmiotu (zwykłe enchanty
+ * oraz zapisane enchanty ksiąg) – bez parsowania toString() regexami.
+ */
+public class EnchantReader {
+    /**
+     * Numer aliasu EnchantMapper (bez poziomu) dla wpisu rejestru. Słaba mapa, bo rejestr
+     * enchantów jest dynamiczny i po każdym wejściu na serwer dostajemy nowe wpisy.
+     */
+    private static final Map<RegistryEntry<Enchantment>, Integer> ALIAS_CACHE = new WeakHashMap<>();
+
+    /**
+     * Zwraca enchanty przedmiotu jako EnchantSet (pusty, jeśli przedmiot ich nie ma).
+     */
+    public static EnchantSet read(ItemStack stack) {
+        ItemEnchantmentsComponent enchantments = stack.get(DataComponentTypes.ENCHANTMENTS);
+        ItemEnchantmentsComponent stored = stack.get(DataComponentTypes.STORED_ENCHANTMENTS);
+        boolean hasEnchantments = enchantments != null && !enchantments.isEmpty();
+        boolean hasStored = stored != null && !stored.isEmpty();
+        if (!hasEnchantments && !hasStored) return EnchantSet.EMPTY;
+
+        EnchantSet.Builder builder = new EnchantSet.Builder();
+        if (hasEnchantments) append(builder, enchantments);
+        if (hasStored) append(builder, stored);
+        return builder.build();
+    }
+
+    private static void append(EnchantSet.Builder builder, ItemEnchantmentsComponent component) {
+        for (Object2IntMap.Entry<RegistryEntry<Enchantment>> entry : component.getEnchantmentEntries()) {
+            int aliasId = ALIAS_CACHE.computeIfAbsent(entry.getKey(), EnchantReader::resolveAlias);
+            builder.addId(aliasId, entry.getIntValue());
+        }
+    }
+
+    private static Integer resolveAlias(RegistryEntry<Enchantment> enchantment) {
+        Optional<RegistryKey<Enchantment>> key = enchantment.getKey();
+        if (key.isEmpty()) return EnchantSet.idOf(EnchantMapper.UNKNOWN);
+        return EnchantSet.idOf(EnchantMapper.mapEnchant(key.get().getValue().getPath(), true));
+    }
+}
@@ -0,0 +1,260 @@
+package pl.lordtricker.ltrynek.client.scanner;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.component.Component;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.tooltip.TooltipType;
+import net.minecraft.registry.Registries;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import pl.lordtricker.ltrynek.client.LtrynekClient;
+import pl.lordtricker.ltrynek.client.config.CompiledProfile;
+import pl.lordtricker.ltrynek.client.keybinding.ToggleScanner;
+import pl.lordtricker.ltrynek.client.manager.ClientHistoryManager;
+import pl.lordtricker.ltrynek.client.manager.ClientPriceListManager;
+import pl.lordtricker.ltrynek.client.manager.ClientSearchListManager;
+import pl.lordtricker.ltrynek.client.manager.ProfileSnapshot;
+import pl.lordtricker.ltrynek.client.mixin.ScreenHandlerAccessor;
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.scanner.ListingEvaluator;
+import pl.lordtricker.ltrynek.core.scanner.ScanVerdict;
+import pl.lordtricker.ltrynek.core.util.ColorStripUtils;
+import pl.lordtricker.ltrynek.core.util.EnchantSet;
+import pl.lordtricker.ltrynek.core.util.Fingerprints;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsowanie ofert ze slotów aktualnie otwartego kontenera.
+ * W trybie eventScanning oferty są parsowane raz – w momencie, gdy serwer przyśle
+ * zawartość kontenera albo aktualizację slotu – a render tylko rysuje gotowe podświetlenia.
+ * <p>
+ * W wątku klienta zostaje odczyt tooltipa i komponentów (SlotCapture); ocena oferty idzie
+ * do ScanPipeline, a wynik wraca do SlotScanCache – podświetlenie pojawia się klatkę lub dwie później.
+ */
+public class ListingScanner {
+    private static ScreenHandler trackedHandler = null;
+    private static final SlotScanCache cache = new SlotScanCache();
+
+    /**
+     * Zwraca cache wyników dla podanego handlera (zakładając nowy przy zmianie ekranu).
+     */
+    public static SlotScanCache cacheFor(ScreenHandler handler) {
+        if (trackedHandler != handler) {
+            if (trackedHandler != null) {
+                ScanPipeline.cancelAll();
+            }
+            trackedHandler = handler;
+            cache.invalidateAll();
+        }
+        return cache;
+    }
+
+    public static boolean isEventScanning() {
+        return LtrynekClient.serversConfig != null && LtrynekClient.serversConfig.eventScanning;
+    }
+
+    /**
+     * Stan list wpływający na wynik skanowania: wersja snapshotu aktywnego profilu (unikalna
+     * między profilami, więc wyznacza też sam profil) i rewizja wyszukiwania. Zmiany innych
+     * profili nie unieważniają wyników.
+     */
+    public static long stateRevision() {
+        // getActiveSnapshot tworzy dla brakującego profilu pusty snapshot z nową wersją przy każdym wywołaniu
+        ProfileSnapshot snapshot = ClientPriceListManager.getSnapshot(ClientPriceListManager.getActiveProfile());
+        long version = snapshot != null ? snapshot.version : 0;
+        return (version << 32) | (ClientSearchListManager.getRevision() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Pakiet z pełną zawartością kontenera – przelicza wszystkie sloty.
+     */
+    public static void onContentsUpdate(ScreenHandler handler) {
+        if (!shouldIngest(handler)) return;
+        List<Slot> slots = ((ScreenHandlerAccessor) handler).getSlots();
+        SlotScanCache slotCache = cacheFor(handler);
+        slotCache.validate(handler.getRevision(), slots.size(), stateRevision());
+        for (int i = 0; i < slots.size(); i++) {
+            ingest(slotCache, i, slots.get(i));
+        }
+    }
+
+    /**
+     * Pakiet z aktualizacją pojedynczego slotu – przelicza tylko ten slot.
+     */
+    public static void onSlotUpdate(ScreenHandler handler, int slotIndex) {
+        if (!shouldIngest(handler)) return;
+        List<Slot> slots = ((ScreenHandlerAccessor) handler).getSlots();
+        if (slotIndex < 0 || slotIndex >= slots.size()) return;
+        SlotScanCache slotCache = cacheFor(handler);
+        slotCache.validate(slots.size(), stateRevision());
+        slotCache.setHandlerRevision(handler.getRevision());
+        ingest(slotCache, slotIndex, slots.get(slotIndex));
+    }
+
+    private static void ingest(SlotScanCache slotCache, int index, Slot slot) {
+        resultFor(slotCache, index, slot, slot.getStack());
+    }
+
+    private static boolean shouldIngest(ScreenHandler handler) {
+        if (!ToggleScanner.scanningEnabled || !isEventScanning()) return false;
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (!client.isOnThread() || client.player == null) return false;
+        return client.player.currentScreenHandler == handler && handler != client.player.playerScreenHandler;
+    }
+
+    /**
+     * Wynik dla slotu z cache albo null, jeśli ocena jeszcze trwa. Slot bez aktualnego wyniku
+     * jest zlecany do ScanPipeline – po stronie wątku klienta zostaje tylko odczyt tooltipa.
+     */
+    public static ScanVerdict resultFor(SlotScanCache slotCache, int index, Slot slot, ItemStack stack) {
+        ScanVerdict result = slotCache.get(index, stack);
+        if (result == null && !slotCache.isPending(index, stack)) {
+            result = requestScan(slotCache, index, slot.id, stack);
+        }
+        return result;
+    }
+
+    /**
+     * Porzuca oceny zleconych slotów (zamknięcie ekranu) – wyniki, które jeszcze przyjdą, są ignorowane.
+     */
+    public static void cancelPending() {
+        ScanPipeline.cancelAll();
+        trackedHandler = null;
+        cache.invalidateAll();
+    }
+
+    /**
+     * Ocenia pusty slot albo slot bez ustawień od razu; pozostałe zleca wątkowi roboczemu
+     * i zwraca null. Ustawienia i lista cen pochodzą z jednego snapshotu profilu.
+     */
+    private static ScanVerdict requestScan(SlotScanCache slotCache, int index, int slotId, ItemStack stack) {
+        ProfileSnapshot snapshot = ClientPriceListManager.getActiveSnapshot();
+        CompiledProfile profile = snapshot.settings;
+        if (stack.isEmpty() || profile == null || profile.rules.lorePattern == null) {
+            slotCache.put(index, stack, ScanVerdict.NONE);
+            return ScanVerdict.NONE;
+        }
+
+        SlotCapture capture = SlotCapture.of(slotId, stack);
+        SlotScanCache.Pending pending = slotCache.beginScan(index, stack);
+        int gen = ScanPipeline.generation();
+        ScanPipeline.submit(gen, () -> {
+            Listing listing = capture.toListing();
+            ScanVerdict verdict;
+            try {
+                verdict = ListingEvaluator.evaluate(listing, profile.rules, snapshot);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                verdict = ScanVerdict.NONE;
+            }
+            if (!ScanPipeline.isCurrent(gen)) return;
+            pending.complete(verdict);
+            if (verdict.hasPrice()) {
+                ScanVerdict priced = verdict;
+                MinecraftClient.getInstance().execute(() -> record(capture, listing, priced));
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Dolicza ocenioną ofertę do statystyk aktywnego wyszukiwania i zapisuje ją w historii (wątek klienta).
+     */
+    private static void record(SlotCapture capture, Listing listing, ScanVerdict verdict) {
+        long fingerprint = fingerprint(capture.stack, verdict);
+        // slot rozróżnia oferty tylko w wyszukiwaniu – ta sama oferta na innej stronie to dla historii ta sama obserwacja
+        long searchFingerprint = ClientSearchListManager.isDedupIncludingSlot()
+                ? Fingerprints.finish(Fingerprints.mix(fingerprint, capture.slotId))
+                : fingerprint;
+        if (ClientSearchListManager.isSearchActive() && ClientSearchListManager.markAsCounted(searchFingerprint)) {
+            ClientSearchListManager.updateStatsForListing(listing.name, listing.loreLines, listing.materialId,
+                    listing.enchants, verdict.unitPrice, verdict.stackSize);
+        }
+        ClientHistoryManager.recordListing(listing, verdict, fingerprint);
+    }
+
+    /**
+     * Odcisk oferty do deduplikacji historii i (z numerem slotu, jeśli włączony) wyszukiwania:
+     * przedmiot z komponentami, cena za sztukę i ilość.
+     */
+    private static long fingerprint(ItemStack stack, ScanVerdict verdict) {
+        long hash = Fingerprints.start();
+        hash = Fingerprints.mix(hash, Registries.ITEM.getRawId(stack.getItem()));
+        hash = Fingerprints.mix(hash, componentsFingerprint(stack));
+        hash = Fingerprints.mix(hash, verdict.unitPrice);
+        hash = Fingerprints.mix(hash, verdict.stackSize);
+        return Fingerprints.finish(hash);
+    }
+
+    /**
+     * 64-bitowy odcisk komponentów: każdy typ i wartość osobno przez Fingerprints.mix (sam hashCode
+     * mapy to tylko 32 bity), a odciski komponentów sumowane – kolejność w mapie nie ma znaczenia.
+     */
+    private static long componentsFingerprint(ItemStack stack) {
+        long sum = 0;
+        for (Component<?> component : stack.getComponents()) {
+            long hash = Fingerprints.start();
+            hash = Fingerprints.mix(hash, Registries.DATA_COMPONENT_TYPE.getRawId(component.type()));
+            hash = Fingerprints.mix(hash, component.value().hashCode());
+            sum += Fingerprints.finish(hash);
+        }
+        return sum;
+    }
+
+    /**
+     * Niezmienna kopia slotu zrobiona w wątku klienta: surowe teksty tooltipa i nazwy, materiał,
+     * enchanty i ilość. Zdjęcie kolorów i budowa Listing dzieją się już w wątku roboczym;
+     * stack służy tylko do odcisku, liczonego z powrotem w wątku klienta.
+     */
+    private static final class SlotCapture {
+        final int slotId;
+        final ItemStack stack;
+        final String rawName;
+        final List<String> rawLines;
+        final String materialId;
+        final EnchantSet enchants;
+        final int count;
+
+        private SlotCapture(int slotId, ItemStack stack, String rawName, List<String> rawLines,
+                            String materialId, EnchantSet enchants, int count) {
+            this.slotId = slotId;
+            this.stack = stack;
+            this.rawName = rawName;
+            this.rawLines = rawLines;
+            this.materialId = materialId;
+            this.enchants = enchants;
+            this.count = count;
+        }
+
+        static SlotCapture of(int slotId, ItemStack stack) {
+            List<Text> tooltip = stack.getTooltip(Item.TooltipContext.DEFAULT, null, TooltipType.BASIC);
+            List<String> rawLines = new ArrayList<>(tooltip.size());
+            for (Text textLine : tooltip) {
+                rawLines.add(textLine.getString());
+            }
+            Identifier id = Registries.ITEM.getId(stack.getItem());
+            return new SlotCapture(slotId, stack, stack.getName().getString(), rawLines,
+                    id.toString(), EnchantReader.read(stack), stack.getCount());
+        }
+
+        /**
+         * Tooltip i nazwa bez kolorów, enchanty (dopisane też jako ostatnia linia lore), materiał i ilość.
+         */
+        Listing toListing() {
+            List<String> loreLines = new ArrayList<>(rawLines.size() + 1);
+            for (String plain : rawLines) {
+                loreLines.add(ColorStripUtils.stripAllColorsAndFormats(plain));
+            }
+            if (!enchants.isEmpty()) {
+                loreLines.add(enchants.describe());
+            }
+            String noColorName = ColorStripUtils.stripAllColorsAndFormats(rawName);
+            return new Listing(noColorName, loreLines, materialId, enchants, count);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package pl.lordtricker.ltrynek.client.scanner;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mała pula wątków oceniających oferty (zdjęcie kolorów, regex ceny, dopasowanie do listy cen).
+ * <p>
+ * Zlecenia są przypięte do generacji – zamknięcie ekranu albo zmiana kontenera podbija generację
+ * i czyści kolejkę, a zlecenia, które już ruszyły, nie publikują wyniku (isCurrent).
+ * Wątki są daemonami i kończą się same po chwili bezczynności.
+ */
+public class ScanPipeline {
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final AtomicInteger generation = new AtomicInteger();
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "LT-Rynek scanner-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public static int generation() {
+        return generation.get();
+    }
+
+    public static boolean isCurrent(int gen) {
+        return generation.get() == gen;
+    }
+
+    /**
+     * Zleca ocenę w ramach podanej generacji; zlecenie z nieaktualnej generacji jest pomijane.
+     */
+    public static void submit(int gen, Runnable task) {
+        executor.execute(() -> {
+            if (isCurrent(gen)) {
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * Unieważnia wszystkie zlecone i trwające oceny (zamknięcie ekranu, nowy kontener).
+     */
+    public static void cancelAll() {
+        generation.incrementAndGet();
+        executor.getQueue().clear();
+    }
+}
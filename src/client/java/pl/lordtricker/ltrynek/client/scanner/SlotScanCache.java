@@ -0,0 +1,185 @@
+package pl.lordtricker.ltrynek.client.scanner;
+
+import net.minecraft.item.ItemStack;
+import pl.lordtricker.ltrynek.core.scanner.ScanVerdict;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache wyników skanowania slotów dla jednego ekranu.
+ * Wpis slotu jest ważny, dopóki w slocie leży ten sam ItemStack (z tą samą ilością),
+ * a rewizja ScreenHandlera i stan list (profil, ceny, wyszukiwanie) się nie zmieniły.
+ * <p>
+ * Oceny liczone w ScanPipeline wracają przez tablicę completed (bez blokad): wątek roboczy
+ * wstawia wynik z numerem zlecenia, a wątek klienta przy odczycie przyjmuje go tylko wtedy,
+ * gdy numer wciąż pasuje do slotu. Poza completed klasa jest używana tylko w wątku klienta.
+ * <p>
+ * Zmiana rewizji albo stanu list nie gasi podświetleń: ostatni wynik slotu (shown) zostaje
+ * widoczny dla tego samego stacka, dopóki nie przyjdzie ocena, która go zastępuje.
+ */
+public class SlotScanCache {
+    private ItemStack[] stacks = new ItemStack[0];
+    private int[] counts = new int[0];
+    private ScanVerdict[] results = new ScanVerdict[0];
+    /** Numer ostatniego zlecenia slotu (0 = brak oczekującego). */
+    private int[] tickets = new int[0];
+    private AtomicReferenceArray<Completed> completed = new AtomicReferenceArray<>(0);
+    /** Ostatni gotowy wynik slotu i stack, którego dotyczy – pokazywany w trakcie ponownej oceny. */
+    private ScanVerdict[] shown = new ScanVerdict[0];
+    private ItemStack[] shownStacks = new ItemStack[0];
+    private int[] shownCounts = new int[0];
+    private int nextTicket = 0;
+    private int handlerRevision = Integer.MIN_VALUE;
+    private long stateRevision = Long.MIN_VALUE;
+
+    private static final class Completed {
+        final int ticket;
+        final ScanVerdict verdict;
+
+        Completed(int ticket, ScanVerdict verdict) {
+            this.ticket = ticket;
+            this.verdict = verdict;
+        }
+    }
+
+    /**
+     * Zlecona ocena slotu – wątek roboczy oddaje przez nią wynik.
+     */
+    public static final class Pending {
+        private final AtomicReferenceArray<Completed> board;
+        private final int index;
+        private final int ticket;
+
+        private Pending(AtomicReferenceArray<Completed> board, int index, int ticket) {
+            this.board = board;
+            this.index = index;
+            this.ticket = ticket;
+        }
+
+        /**
+         * Publikuje wynik; spóźniony wynik starszego zlecenia nie nadpisuje nowszego.
+         */
+        public void complete(ScanVerdict verdict) {
+            board.accumulateAndGet(index, new Completed(ticket, verdict),
+                    (current, next) -> current != null && current.ticket - next.ticket > 0 ? current : next);
+        }
+    }
+
+    /**
+     * Czyści cache, jeśli zmieniła się rewizja handlera, liczba slotów albo stan list.
+     */
+    public void validate(int handlerRevision, int slotCount, long stateRevision) {
+        if (slotCount != results.length) {
+            stacks = new ItemStack[slotCount];
+            counts = new int[slotCount];
+            results = new ScanVerdict[slotCount];
+            tickets = new int[slotCount];
+            completed = new AtomicReferenceArray<>(slotCount);
+            shown = new ScanVerdict[slotCount];
+            shownStacks = new ItemStack[slotCount];
+            shownCounts = new int[slotCount];
+        } else if (handlerRevision != this.handlerRevision || stateRevision != this.stateRevision) {
+            invalidateResults();
+        }
+        this.handlerRevision = handlerRevision;
+        this.stateRevision = stateRevision;
+    }
+
+    /**
+     * Wariant dla trybu eventScanning – sloty są aktualizowane pakietami,
+     * więc zmiana rewizji handlera nie czyści całego cache.
+     */
+    public void validate(int slotCount, long stateRevision) {
+        validate(this.handlerRevision, slotCount, stateRevision);
+    }
+
+    public void setHandlerRevision(int handlerRevision) {
+        this.handlerRevision = handlerRevision;
+    }
+
+    /**
+     * Zwraca zapamiętany wynik dla slotu albo null, jeśli slot trzeba przeliczyć
+     * albo jego ocena jeszcze trwa (isPending).
+     */
+    public ScanVerdict get(int index, ItemStack stack) {
+        if (stacks[index] != stack || counts[index] != stack.getCount()) {
+            return null;
+        }
+        ScanVerdict result = results[index];
+        if (result == null && tickets[index] != 0) {
+            Completed done = completed.get(index);
+            if (done != null && done.ticket == tickets[index]) {
+                result = done.verdict;
+                put(index, stack, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Poprzedni wynik slotu, jeśli dotyczył tego samego stacka – do pokazania, zanim get
+     * zwróci nową ocenę. Null, gdy w slocie leży już coś innego.
+     */
+    public ScanVerdict previous(int index, ItemStack stack) {
+        if (shownStacks[index] != stack || shownCounts[index] != stack.getCount()) {
+            return null;
+        }
+        return shown[index];
+    }
+
+    /**
+     * Czy dla tego stacka czekamy już na wynik z ScanPipeline (nie trzeba zlecać ponownie).
+     */
+    public boolean isPending(int index, ItemStack stack) {
+        return tickets[index] != 0 && results[index] == null
+                && stacks[index] == stack && counts[index] == stack.getCount();
+    }
+
+    /**
+     * Oznacza slot jako oczekujący na ocenę tego stacka. Wynik poprzedniego zlecenia
+     * (jeśli jeszcze przyjdzie) zostanie zignorowany.
+     */
+    public Pending beginScan(int index, ItemStack stack) {
+        stacks[index] = stack;
+        counts[index] = stack.getCount();
+        results[index] = null;
+        if (++nextTicket == 0) {
+            nextTicket = 1;
+        }
+        tickets[index] = nextTicket;
+        return new Pending(completed, index, nextTicket);
+    }
+
+    public void put(int index, ItemStack stack, ScanVerdict result) {
+        stacks[index] = stack;
+        counts[index] = stack.getCount();
+        results[index] = result;
+        tickets[index] = 0;
+        completed.set(index, null);
+        shown[index] = result;
+        shownStacks[index] = stack;
+        shownCounts[index] = counts[index];
+    }
+
+    /**
+     * Unieważnia wyniki (sloty zostaną ocenione ponownie), ale zostawia poprzednie do pokazania.
+     */
+    private void invalidateResults() {
+        Arrays.fill(stacks, null);
+        Arrays.fill(results, null);
+        Arrays.fill(tickets, 0);
+        for (int i = 0; i < completed.length(); i++) {
+            completed.set(i, null);
+        }
+    }
+
+    /**
+     * Czyści cache razem z poprzednimi wynikami – nowy ekran albo jego zamknięcie.
+     */
+    public void invalidateAll() {
+        invalidateResults();
+        Arrays.fill(shown, null);
+        Arrays.fill(shownStacks, null);
+    }
+}
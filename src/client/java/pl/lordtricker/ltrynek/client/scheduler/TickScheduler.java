@@ -0,0 +1,119 @@
+package pl.lordtricker.ltrynek.client.scheduler;
+
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Jeden planista zadań opóźnionych i powtarzanych, napędzany tickami klienta (20 na sekundę).
+ * Zadania wykonują się zawsze w wątku klienta, więc mogą bez synchronizacji zmieniać stan
+ * managerów i renderu – i nie tworzą nowych wątków, jak robił to java.util.Timer.
+ * <p>
+ * Zadania z kluczem są scalane: zaplanowanie nowego zadania z tym samym kluczem
+ * anuluje poprzednie (np. kolejny alarm zastępuje jeszcze grający).
+ * Metody wolno wywoływać tylko z wątku klienta.
+ */
+public class TickScheduler {
+    public static final int TICKS_PER_SECOND = 20;
+
+    private static final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private static final Map<String, Task> keyed = new HashMap<>();
+    private static long currentTick = 0;
+    private static long sequence = 0;
+
+    public static void init() {
+        ClientTickEvents.END_CLIENT_TICK.register(client -> tick());
+    }
+
+    /**
+     * Wykonuje zadanie raz, po podanej liczbie ticków.
+     */
+    public static void schedule(String key, long delayTicks, Runnable action) {
+        repeat(key, delayTicks, 0, 1, action);
+    }
+
+    /**
+     * Wykonuje zadanie {@code times} razy: pierwszy raz po delayTicks, potem co periodTicks.
+     * Przy kluczu innym niż null anuluje wcześniejsze zadanie z tym samym kluczem.
+     */
+    public static void repeat(String key, long delayTicks, long periodTicks, int times, Runnable action) {
+        if (key != null) {
+            cancel(key);
+        }
+        Task task = new Task(key, Math.max(0, periodTicks), times, action);
+        task.dueTick = currentTick + Math.max(1, delayTicks);
+        task.order = sequence++;
+        if (key != null) {
+            keyed.put(key, task);
+        }
+        queue.add(task);
+    }
+
+    /**
+     * Anuluje zaplanowane zadanie o podanym kluczu (jeśli jest).
+     */
+    public static void cancel(String key) {
+        Task task = keyed.remove(key);
+        if (task != null) {
+            task.cancelled = true;
+        }
+    }
+
+    private static void tick() {
+        currentTick++;
+        while (!queue.isEmpty() && queue.peek().dueTick <= currentTick) {
+            Task task = queue.poll();
+            if (task.cancelled) continue;
+
+            task.remaining--;
+            boolean again = task.remaining > 0 && task.periodTicks > 0;
+            if (!again) {
+                task.finish();
+            }
+            try {
+                task.action.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (again && !task.cancelled) {
+                task.dueTick = currentTick + task.periodTicks;
+                task.order = sequence++;
+                queue.add(task);
+            }
+        }
+    }
+
+    private static final class Task implements Comparable<Task> {
+        private final String key;
+        private final long periodTicks;
+        private final Runnable action;
+        private int remaining;
+        private long dueTick;
+        private long order;
+        private boolean cancelled = false;
+
+        private Task(String key, long periodTicks, int times, Runnable action) {
+            this.key = key;
+            this.periodTicks = periodTicks;
+            this.remaining = Math.max(1, times);
+            this.action = action;
+        }
+
+        /**
+         * Zdejmuje klucz zadania, o ile nie został już przejęty przez nowsze zadanie.
+         */
+        private void finish() {
+            if (key != null && keyed.get(key) == this) {
+                keyed.remove(key);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byTick = Long.compare(dueTick, other.dueTick);
+            return byTick != 0 ? byTick : Long.compare(order, other.order);
+        }
+    }
+}
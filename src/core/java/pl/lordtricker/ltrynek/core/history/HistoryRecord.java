@@ -0,0 +1,29 @@
+package pl.lordtricker.ltrynek.core.history;
+
+import pl.lordtricker.ltrynek.core.util.Money;
+
+/**
+ * Jedna zapisana obserwacja oferty: kiedy, na jakim profilu, pod jakim composite key,
+ * cena za sztukę (w groszach – setnych częściach waluty serwera), ilość i odcisk oferty.
+ */
+public class HistoryRecord {
+    public final long timestamp;
+    public final String profile;
+    public final String key;
+    public final long unitPriceMinor;
+    public final int quantity;
+    public final long fingerprint;
+
+    public HistoryRecord(long timestamp, String profile, String key, long unitPriceMinor, int quantity, long fingerprint) {
+        this.timestamp = timestamp;
+        this.profile = profile;
+        this.key = key;
+        this.unitPriceMinor = unitPriceMinor;
+        this.quantity = quantity;
+        this.fingerprint = fingerprint;
+    }
+
+    public double unitPrice() {
+        return Money.toMajor(unitPriceMinor);
+    }
+}
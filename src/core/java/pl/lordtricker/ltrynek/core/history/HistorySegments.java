@@ -0,0 +1,500 @@
+package pl.lordtricker.ltrynek.core.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Binarny format segmentów historii.
+ * <p>
+ * Segment surowy (.log) – dopisywany w trakcie gry:
+ * <pre>
+ * nagłówek: "LTRH" | wersja | FORMAT_RAW
+ * TAG_STRING: id (varint) | długość (varint) | UTF-8       – słownik profili i kluczy segmentu
+ * TAG_RECORD: czas (8 B) | profil (varint) | klucz (varint) | cena (zigzag varint) | ilość (varint) | odcisk (8 B)
+ * </pre>
+ * Segment skompaktowany (.cseg) – rekordy pogrupowane po (profil, klucz) i posortowane po czasie,
+ * czas i cena zapisane jako różnice do poprzedniego rekordu grupy (zigzag varint).
+ * Ucięty ostatni rekord (np. po awarii gry) jest pomijany przy odczycie.
+ */
+public final class HistorySegments {
+    static final int MAGIC = 0x4C545248; // "LTRH"
+    static final byte VERSION = 1;
+    static final byte FORMAT_RAW = 0;
+    static final byte FORMAT_COMPACT = 1;
+    static final int HEADER_SIZE = 6;
+
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_RECORD = 2;
+
+    private HistorySegments() {
+    }
+
+    public static byte[] rawHeader() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION).put(FORMAT_RAW).array();
+    }
+
+    /**
+     * Koder rekordów segmentu surowego – pamięta słownik stringów już zapisanych do tego segmentu.
+     */
+    public static final class RawEncoder {
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        public void encode(HistoryRecord record, ByteArrayOutputStream out) {
+            int profileId = stringId(record.profile, out);
+            int keyId = stringId(record.key, out);
+            out.write(TAG_RECORD);
+            writeLong(out, record.timestamp);
+            writeVarint(out, profileId);
+            writeVarint(out, keyId);
+            writeVarint(out, zigzag(record.unitPriceMinor));
+            writeVarint(out, record.quantity);
+            writeLong(out, record.fingerprint);
+        }
+
+        private int stringId(String value, ByteArrayOutputStream out) {
+            Integer id = strings.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.put(value, id);
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.write(TAG_STRING);
+                writeVarint(out, id);
+                writeVarint(out, bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Scala segmenty (surowe i skompaktowane) w jeden segment skompaktowany, grupa po grupie.
+     * <p>
+     * add tylko indeksuje segment – zapamiętuje, gdzie leżą rekordy każdej grupy (profil, klucz).
+     * writeTo dekoduje naraz rekordy jednej grupy, sortuje je po czasie, pomija powtórzenia
+     * (ten sam czas i odcisk – np. segment, który przetrwał awarię w trakcie kompaktowania)
+     * i od razu zapisuje grupę do strumienia. W pamięci są więc tylko zakodowane segmenty
+     * i jedna grupa naraz, a nie wszystkie rekordy ani cały wynik.
+     */
+    public static final class Merger {
+        private final List<ByteBuffer> segments = new ArrayList<>();
+        private final Map<String, Map<String, Group>> groups = new LinkedHashMap<>();
+
+        // bufory jednej grupy, używane ponownie
+        private long[] times = new long[64];
+        private long[] prices = new long[64];
+        private int[] quantities = new int[64];
+        private long[] fingerprints = new long[64];
+        private int[] order = new int[64];
+        private int[] scratch = new int[64];
+
+        /**
+         * Indeksuje segment. Ucięty koniec jest pomijany jak przy odczycie.
+         *
+         * @return false, jeśli bufor nie jest segmentem historii
+         */
+        public boolean add(ByteBuffer segment) {
+            ByteBuffer buffer = segment.duplicate();
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                return false;
+            }
+            byte format = buffer.get();
+            if (format != FORMAT_RAW && format != FORMAT_COMPACT) return false;
+            int index = segments.size();
+            segments.add(buffer);
+            try {
+                if (format == FORMAT_RAW) {
+                    indexRaw(buffer, index);
+                } else {
+                    indexCompact(buffer, index);
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                // ucięty koniec segmentu – wszystko przed nim jest w indeksie
+            }
+            return true;
+        }
+
+        private void indexRaw(ByteBuffer buffer, int segment) {
+            List<String> strings = new ArrayList<>();
+            while (buffer.hasRemaining()) {
+                byte tag = buffer.get();
+                if (tag == TAG_STRING) {
+                    int id = readVarint(buffer);
+                    String value = readString(buffer);
+                    if (id != strings.size()) return;
+                    strings.add(value);
+                } else if (tag == TAG_RECORD) {
+                    int position = buffer.position();
+                    long timestamp = buffer.getLong();
+                    String profile = strings.get(readVarint(buffer));
+                    String key = strings.get(readVarint(buffer));
+                    readVarlong(buffer);
+                    readVarint(buffer);
+                    buffer.getLong();
+                    group(profile, key).add(segment, position, 1, timestamp);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void indexCompact(ByteBuffer buffer, int segment) {
+            int stringCount = readVarint(buffer);
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = readString(buffer);
+            }
+            int groupCount = readVarint(buffer);
+            for (int g = 0; g < groupCount; g++) {
+                Group group = group(strings[readVarint(buffer)], strings[readVarint(buffer)]);
+                int position = buffer.position();
+                int count = readVarint(buffer);
+                int decoded = 0;
+                long time = 0;
+                long last = Long.MIN_VALUE;
+                try {
+                    for (int i = 0; i < count; i++) {
+                        time += unzigzag(readVarlong(buffer));
+                        readVarlong(buffer);
+                        readVarint(buffer);
+                        buffer.getLong();
+                        last = Math.max(last, time);
+                        decoded++;
+                    }
+                } finally {
+                    if (decoded > 0) {
+                        group.add(segment, position, decoded, last);
+                    }
+                }
+            }
+        }
+
+        private Group group(String profile, String key) {
+            return groups.computeIfAbsent(profile, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(key, k -> new Group(profile, key));
+        }
+
+        /**
+         * Zapisuje scalony segment skompaktowany do out. Rekordy starsze niż keepFrom nie trafiają
+         * do wyniku, tylko do older (np. do agregatów).
+         *
+         * @return {pierwszy, ostatni} czas zapisanych rekordów albo null, jeśli nic nie zapisano
+         */
+        public long[] writeTo(long keepFrom, Consumer<HistoryRecord> older, OutputStream out) throws IOException {
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            int keptGroups = 0;
+            for (Map<String, Group> keys : groups.values()) {
+                for (Group group : keys.values()) {
+                    if (group.latest >= keepFrom) {
+                        strings.computeIfAbsent(group.profile, k -> strings.size());
+                        strings.computeIfAbsent(group.key, k -> strings.size());
+                        keptGroups++;
+                    }
+                }
+            }
+
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream(64 * 1024);
+            if (keptGroups > 0) {
+                chunk.writeBytes(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION).put(FORMAT_COMPACT).array());
+                writeVarint(chunk, strings.size());
+                for (String value : strings.keySet()) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(chunk, bytes.length);
+                    chunk.write(bytes, 0, bytes.length);
+                }
+                writeVarint(chunk, keptGroups);
+            }
+
+            long[] range = {Long.MAX_VALUE, Long.MIN_VALUE};
+            for (Map<String, Group> keys : groups.values()) {
+                for (Group group : keys.values()) {
+                    int count = decode(group);
+                    int kept = 0;
+                    for (int i = 0; i < count; i++) {
+                        int r = order[i];
+                        if (times[r] >= keepFrom) {
+                            kept++;
+                        } else {
+                            older.accept(new HistoryRecord(times[r], group.profile, group.key, prices[r], quantities[r], fingerprints[r]));
+                        }
+                    }
+                    if (group.latest < keepFrom) continue;
+
+                    writeVarint(chunk, strings.get(group.profile));
+                    writeVarint(chunk, strings.get(group.key));
+                    writeVarint(chunk, kept);
+                    long lastTime = 0;
+                    long lastPrice = 0;
+                    for (int i = 0; i < count; i++) {
+                        int r = order[i];
+                        if (times[r] < keepFrom) continue;
+                        writeVarint(chunk, zigzag(times[r] - lastTime));
+                        writeVarint(chunk, zigzag(prices[r] - lastPrice));
+                        writeVarint(chunk, quantities[r]);
+                        writeLong(chunk, fingerprints[r]);
+                        lastTime = times[r];
+                        lastPrice = prices[r];
+                        range[0] = Math.min(range[0], times[r]);
+                        range[1] = Math.max(range[1], times[r]);
+                    }
+                    chunk.writeTo(out);
+                    chunk.reset();
+                }
+            }
+            chunk.writeTo(out);
+            return keptGroups > 0 ? range : null;
+        }
+
+        /**
+         * Dekoduje rekordy grupy ze wszystkich segmentów do buforów; order zawiera je po czasie,
+         * bez powtórzeń. Zwraca liczbę rekordów w order.
+         */
+        private int decode(Group group) {
+            ensureCapacity(group.records);
+            int n = 0;
+            for (int i = 0; i < group.refCount; i++) {
+                ByteBuffer buffer = segments.get((int) (group.refs[i] >>> 32));
+                buffer.position((int) group.refs[i]);
+                if (isRaw(buffer)) {
+                    times[n] = buffer.getLong();
+                    readVarint(buffer);
+                    readVarint(buffer);
+                    prices[n] = unzigzag(readVarlong(buffer));
+                    quantities[n] = readVarint(buffer);
+                    fingerprints[n] = buffer.getLong();
+                    n++;
+                } else {
+                    readVarint(buffer);
+                    long time = 0;
+                    long price = 0;
+                    for (int j = 0; j < group.counts[i]; j++) {
+                        time += unzigzag(readVarlong(buffer));
+                        price += unzigzag(readVarlong(buffer));
+                        times[n] = time;
+                        prices[n] = price;
+                        quantities[n] = readVarint(buffer);
+                        fingerprints[n] = buffer.getLong();
+                        n++;
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            sortByTime(n);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                int r = order[i];
+                if (unique > 0) {
+                    int previous = order[unique - 1];
+                    if (times[previous] == times[r] && fingerprints[previous] == fingerprints[r]) continue;
+                }
+                order[unique++] = r;
+            }
+            return unique;
+        }
+
+        private static boolean isRaw(ByteBuffer buffer) {
+            return buffer.get(HEADER_SIZE - 1) == FORMAT_RAW;
+        }
+
+        /**
+         * Sortowanie przez scalanie indeksów po (czas, odcisk) – stabilne, bez pudełkowania.
+         */
+        private void sortByTime(int n) {
+            int[] from = order;
+            int[] to = scratch;
+            for (int width = 1; width < n; width *= 2) {
+                for (int lo = 0; lo < n; lo += 2 * width) {
+                    int mid = Math.min(lo + width, n);
+                    int hi = Math.min(lo + 2 * width, n);
+                    int a = lo;
+                    int b = mid;
+                    for (int k = lo; k < hi; k++) {
+                        if (a < mid && (b >= hi || compare(from[a], from[b]) <= 0)) {
+                            to[k] = from[a++];
+                        } else {
+                            to[k] = from[b++];
+                        }
+                    }
+                }
+                int[] swap = from;
+                from = to;
+                to = swap;
+            }
+            if (from != order) {
+                System.arraycopy(from, 0, order, 0, n);
+            }
+        }
+
+        private int compare(int a, int b) {
+            int byTime = Long.compare(times[a], times[b]);
+            return byTime != 0 ? byTime : Long.compare(fingerprints[a], fingerprints[b]);
+        }
+
+        private void ensureCapacity(int records) {
+            if (times.length >= records) return;
+            int capacity = Math.max(records, times.length * 2);
+            times = new long[capacity];
+            prices = new long[capacity];
+            quantities = new int[capacity];
+            fingerprints = new long[capacity];
+            order = new int[capacity];
+            scratch = new int[capacity];
+        }
+    }
+
+    /**
+     * Miejsca rekordów jednej grupy w segmentach: (segment &lt;&lt; 32) | pozycja – pojedynczy rekord
+     * segmentu surowego albo sekcja grupy w segmencie skompaktowanym (counts = liczba rekordów).
+     */
+    private static final class Group {
+        final String profile;
+        final String key;
+        long[] refs = new long[4];
+        int[] counts = new int[4];
+        int refCount;
+        int records;
+        long latest = Long.MIN_VALUE;
+
+        Group(String profile, String key) {
+            this.profile = profile;
+            this.key = key;
+        }
+
+        void add(int segment, int position, int count, long lastTimestamp) {
+            if (refCount == refs.length) {
+                refs = Arrays.copyOf(refs, refCount * 2);
+                counts = Arrays.copyOf(counts, refCount * 2);
+            }
+            refs[refCount] = ((long) segment << 32) | position;
+            counts[refCount] = count;
+            refCount++;
+            records += count;
+            latest = Math.max(latest, lastTimestamp);
+        }
+    }
+
+    /**
+     * Odczytuje wszystkie rekordy segmentu (surowego albo skompaktowanego).
+     *
+     * @return false, jeśli bufor nie jest segmentem historii
+     */
+    public static boolean read(ByteBuffer buffer, Consumer<HistoryRecord> sink) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+            return false;
+        }
+        byte format = buffer.get();
+        try {
+            if (format == FORMAT_RAW) {
+                readRaw(buffer, sink);
+            } else if (format == FORMAT_COMPACT) {
+                readCompact(buffer, sink);
+            } else {
+                return false;
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            // ucięty koniec segmentu – wszystko przed nim zostało już odczytane
+        }
+        return true;
+    }
+
+    private static void readRaw(ByteBuffer buffer, Consumer<HistoryRecord> sink) {
+        List<String> strings = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            byte tag = buffer.get();
+            if (tag == TAG_STRING) {
+                int id = readVarint(buffer);
+                String value = readString(buffer);
+                if (id != strings.size()) return;
+                strings.add(value);
+            } else if (tag == TAG_RECORD) {
+                long timestamp = buffer.getLong();
+                String profile = strings.get(readVarint(buffer));
+                String key = strings.get(readVarint(buffer));
+                long price = unzigzag(readVarlong(buffer));
+                int quantity = readVarint(buffer);
+                long fingerprint = buffer.getLong();
+                sink.accept(new HistoryRecord(timestamp, profile, key, price, quantity, fingerprint));
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void readCompact(ByteBuffer buffer, Consumer<HistoryRecord> sink) {
+        int stringCount = readVarint(buffer);
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = readString(buffer);
+        }
+        int groups = readVarint(buffer);
+        for (int g = 0; g < groups; g++) {
+            String profile = strings[readVarint(buffer)];
+            String key = strings[readVarint(buffer)];
+            int count = readVarint(buffer);
+            long time = 0;
+            long price = 0;
+            for (int i = 0; i < count; i++) {
+                time += unzigzag(readVarlong(buffer));
+                price += unzigzag(readVarlong(buffer));
+                int quantity = readVarint(buffer);
+                long fingerprint = buffer.getLong();
+                sink.accept(new HistoryRecord(time, profile, key, price, quantity, fingerprint));
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static long readVarlong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IndexOutOfBoundsException("Zbyt długi varint");
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        return (int) readVarlong(buffer);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,391 @@
+package pl.lordtricker.ltrynek.core.history;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Dopisywany log obserwacji ofert podzielony na segmenty.
+ * <p>
+ * - rekordy trafiają do kolejki i są zapisywane paczkami przez jeden wątek w tle,
+ * - każda sesja gry pisze nowy segment surowy (segment-&lt;czas&gt;.log, zmieniany po SEGMENT_MAX_BYTES),
+ * - przy starcie segmenty z poprzednich sesji są kompaktowane do jednego pliku
+ *   history-&lt;od&gt;-&lt;do&gt;.cseg, a rekordy starsze niż retencja są usuwane,
+ * - odczyt mapuje segmenty do pamięci (FileChannel.map),
+ * - z agregatami (PriceRollups) surowe rekordy żyją tyle co kubełki minutowe: starsze są przy
+ *   kompaktowaniu wliczane do poziomu godzinowego i dziennego zapisanego w rollups.bin i usuwane
+ *   z segmentów, a przy starcie agregaty dostają z dysku tylko ten plik i rekordy nowsze od jego
+ *   watermarku.
+ */
+public class HistoryStore {
+    static final String RAW_PREFIX = "segment-";
+    static final String RAW_SUFFIX = ".log";
+    static final String COMPACT_PREFIX = "history-";
+    static final String COMPACT_SUFFIX = ".cseg";
+    static final String ROLLUPS_FILE = "rollups.bin";
+
+    private static final long SEGMENT_MAX_BYTES = 4L * 1024 * 1024;
+    /** Skompaktowane segmenty mniejsze od tego progu są przy starcie łączone z nowymi danymi. */
+    private static final long COMPACT_MERGE_BYTES = 8L * 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int BATCH_SIZE = 4096;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final Path dir;
+    private final long retentionMillis;
+    /** Znacznik końca kolejki – po nim wątek zapisu zamyka segment i kończy pracę. */
+    private static final HistoryRecord STOP = new HistoryRecord(0, "", "", 0, 0, 0);
+
+    private final BlockingQueue<HistoryRecord> pending = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile boolean running = false;
+    private Thread writer;
+    private PriceRollups rollups;
+    /** Rekordy sprzed tego czasu są już w agregatach – nie wolno ich dokładać drugi raz. */
+    private long rollupsWatermark = Long.MIN_VALUE;
+
+    // stan segmentu pisanego przez wątek w tle
+    private FileChannel segment;
+    private HistorySegments.RawEncoder encoder;
+    private long segmentBytes;
+
+    public HistoryStore(Path dir, long retentionMillis) {
+        this.dir = dir;
+        this.retentionMillis = retentionMillis;
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public void start() {
+        start(null);
+    }
+
+    /**
+     * Uruchamia wątek zapisu. Po kompaktowaniu, a przed zapisem pierwszego rekordu tej sesji,
+     * wątek wczytuje do rollups zapisane agregaty i nowsze od nich rekordy z dysku – bez dublowania
+     * tych z bieżącej sesji.
+     */
+    public void start(PriceRollups rollups) {
+        if (running) return;
+        running = true;
+        this.rollups = rollups;
+        writer = new Thread(this::runWriter, "LT-Rynek history writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Dodaje rekord do zapisu; nie blokuje – przy pełnej kolejce rekord jest pomijany.
+     */
+    public boolean append(HistoryRecord record) {
+        return running && pending.offer(record);
+    }
+
+    /**
+     * Zapisuje zaległe rekordy i zatrzymuje wątek zapisu.
+     */
+    public synchronized void close() {
+        if (!running) return;
+        running = false;
+        try {
+            // bez interrupt – przerwany FileChannel zamyka się w połowie zapisu
+            pending.put(STOP);
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Odczytuje wszystkie zapisane rekordy (skompaktowane i surowe, łącznie z bieżącym segmentem).
+     */
+    public void readAll(Consumer<HistoryRecord> sink) {
+        for (Path file : listSegments()) {
+            readSegment(file, sink);
+        }
+    }
+
+    private static void readSegment(Path file, Consumer<HistoryRecord> sink) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (!HistorySegments.read(buffer, sink)) {
+                System.err.println("Pomijam uszkodzony segment historii " + file.getFileName());
+            }
+        } catch (IOException e) {
+            System.err.println("Błąd odczytu segmentu historii " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private List<Path> listSegments() {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return files;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(RAW_SUFFIX) || name.endsWith(COMPACT_SUFFIX)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private void runWriter() {
+        try {
+            Files.createDirectories(dir);
+            compactPreviousSessions();
+        } catch (IOException e) {
+            System.err.println("Nie udało się przygotować katalogu historii: " + e.getMessage());
+        }
+        if (rollups != null) {
+            long covered = rollupsWatermark;
+            readAll(record -> {
+                if (record.timestamp >= covered) {
+                    rollups.add(record);
+                }
+            });
+        }
+
+        List<HistoryRecord> batch = new ArrayList<>(BATCH_SIZE);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                HistoryRecord first = pending.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    pending.drainTo(batch, BATCH_SIZE - 1);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            int stop = batch.indexOf(STOP);
+            if (stop >= 0) {
+                batch.subList(stop, batch.size()).clear();
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        closeSegment();
+    }
+
+    private void writeBatch(List<HistoryRecord> batch) {
+        try {
+            if (segment == null || segmentBytes >= SEGMENT_MAX_BYTES) {
+                openNewSegment();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(batch.size() * 32);
+            for (HistoryRecord record : batch) {
+                encoder.encode(record, out);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            while (buffer.hasRemaining()) {
+                segmentBytes += segment.write(buffer);
+            }
+        } catch (IOException e) {
+            System.err.println("Błąd zapisu historii: " + e.getMessage());
+            closeSegment();
+        }
+    }
+
+    private void openNewSegment() throws IOException {
+        closeSegment();
+        long now = System.currentTimeMillis();
+        Path file = dir.resolve(RAW_PREFIX + now + RAW_SUFFIX);
+        while (Files.exists(file)) {
+            file = dir.resolve(RAW_PREFIX + (++now) + RAW_SUFFIX);
+        }
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segment.write(ByteBuffer.wrap(HistorySegments.rawHeader()));
+        segmentBytes = HistorySegments.HEADER_SIZE;
+        encoder = new HistorySegments.RawEncoder();
+    }
+
+    private void closeSegment() {
+        if (segment == null) return;
+        try {
+            segment.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        segment = null;
+        encoder = null;
+    }
+
+    /**
+     * Kompaktuje surowe segmenty poprzednich sesji (razem z małymi segmentami .cseg)
+     * do jednego pliku .cseg i stosuje retencję. Z agregatami rekordy starsze niż życie kubełków
+     * minutowych trafiają do rollups.bin (zapisywanego przed usunięciem segmentów) zamiast do .cseg,
+     * a zapisane agregaty są dokładane do rollups (rollupsWatermark mówi, od kiedy brać rekordy).
+     * Scalanie idzie grupa po grupie i pomija powtórzone rekordy, więc segmenty pozostawione przez
+     * przerwane kompaktowanie nie dublują historii.
+     * Wywoływane w wątku zapisu, zanim powstanie segment bieżącej sesji.
+     */
+    void compactPreviousSessions() throws IOException {
+        long now = System.currentTimeMillis();
+        long cutoff = retentionMillis > 0 ? now - retentionMillis : Long.MIN_VALUE;
+        Path rollupsFile = dir.resolve(ROLLUPS_FILE);
+        PriceRollups stored = null;
+        long covered = Long.MIN_VALUE;
+        long watermark = Long.MIN_VALUE;
+        if (rollups != null) {
+            stored = new PriceRollups(retentionMillis);
+            covered = stored.load(rollupsFile);
+            rollupsWatermark = covered;
+            watermark = Math.max(covered, now - RollupTier.MINUTE.retentionMillis);
+        }
+
+        List<Path> segments = listSegments();
+        List<Path> raw = new ArrayList<>();
+        long rawStart = Long.MAX_VALUE;
+        for (Path file : segments) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(RAW_SUFFIX)) {
+                raw.add(file);
+                rawStart = Math.min(rawStart, rawSegmentStart(name));
+            }
+        }
+        List<Path> merged = new ArrayList<>();
+        boolean downsample = false;
+        for (Path file : segments) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(RAW_SUFFIX)) {
+                continue;
+            } else if (compactSegmentEnd(name) < Math.max(cutoff, covered)) {
+                Files.deleteIfExists(file);
+            } else if (compactSegmentStart(name) < watermark) {
+                merged.add(file);
+                downsample = true;
+            } else if (Files.size(file) < COMPACT_MERGE_BYTES || compactSegmentEnd(name) >= rawStart) {
+                // .cseg sięgający w czas surowych segmentów to wynik kompaktowania przerwanego przed
+                // usunięciem wejść – scalanie usunie powtórzone rekordy
+                merged.add(file);
+            }
+        }
+        if (raw.isEmpty() && !downsample) {
+            if (stored != null) {
+                rollups.merge(stored);
+            }
+            return;
+        }
+        merged.addAll(raw);
+
+        // segmenty, które zaraz zostaną usunięte, czytamy do pamięci zamiast mapować –
+        // zmapowanego pliku nie da się usunąć na Windowsie, dopóki GC nie zwolni bufora
+        HistorySegments.Merger merger = new HistorySegments.Merger();
+        for (Path file : merged) {
+            try {
+                if (!merger.add(ByteBuffer.wrap(Files.readAllBytes(file)))) {
+                    System.err.println("Pomijam uszkodzony segment historii " + file.getFileName());
+                }
+            } catch (IOException e) {
+                System.err.println("Błąd odczytu segmentu historii " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+
+        PriceRollups folded = stored;
+        long skipBefore = Math.max(cutoff, covered);
+        Path temp = dir.resolve(COMPACT_PREFIX + "merge" + COMPACT_SUFFIX + ".tmp");
+        long[] range;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+            range = merger.writeTo(Math.max(watermark, skipBefore), record -> {
+                if (folded != null && record.timestamp >= skipBefore) {
+                    folded.add(record, now);
+                }
+            }, out);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (stored != null) {
+            try {
+                stored.save(rollupsFile, watermark, now);
+            } catch (IOException e) {
+                // segmenty zostają nietknięte, a agregaty dostają plik w poprzedniej wersji
+                System.err.println("Nie udało się zapisać agregatów historii: " + e.getMessage());
+                Files.deleteIfExists(temp);
+                rollups.load(rollupsFile);
+                return;
+            }
+            rollups.merge(stored);
+            rollupsWatermark = watermark;
+        }
+        String targetName = null;
+        if (range != null) {
+            targetName = COMPACT_PREFIX + range[0] + "-" + range[1] + COMPACT_SUFFIX;
+            Path target = dir.resolve(targetName);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } else {
+            Files.deleteIfExists(temp);
+        }
+        for (Path file : merged) {
+            if (!file.getFileName().toString().equals(targetName)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Czas utworzenia zapisany w nazwie segment-&lt;czas&gt;.log – rekordy segmentu nie są starsze.
+     */
+    private static long rawSegmentStart(String name) {
+        try {
+            return Long.parseLong(name.substring(RAW_PREFIX.length(), name.length() - RAW_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Czas pierwszego rekordu zapisany w nazwie history-&lt;od&gt;-&lt;do&gt;.cseg.
+     */
+    private static long compactSegmentStart(String name) {
+        try {
+            String range = name.substring(COMPACT_PREFIX.length(), name.length() - COMPACT_SUFFIX.length());
+            return Long.parseLong(range.substring(0, range.indexOf('-')));
+        } catch (RuntimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Czas ostatniego rekordu zapisany w nazwie history-&lt;od&gt;-&lt;do&gt;.cseg.
+     */
+    private static long compactSegmentEnd(String name) {
+        try {
+            String range = name.substring(COMPACT_PREFIX.length(), name.length() - COMPACT_SUFFIX.length());
+            return Long.parseLong(range.substring(range.indexOf('-') + 1));
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package pl.lordtricker.ltrynek.core.history;
+
+import pl.lordtricker.ltrynek.core.util.QuantileSketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Jeden kubełek czasu dla jednego przedmiotu: OHLC ceny za sztukę (w groszach),
+ * wolumen (suma sztuk), liczba ofert i mały szkic kwantyli ważony ilością.
+ */
+public class PriceBucket {
+    public final long start;
+    public long open;
+    public long high = Long.MIN_VALUE;
+    public long low = Long.MAX_VALUE;
+    public long close;
+    public long volume;
+    public long listings;
+
+    // czasy pierwszej i ostatniej obserwacji – dane z historii nie zawsze przychodzą po kolei
+    private long openTime = Long.MAX_VALUE;
+    private long closeTime = Long.MIN_VALUE;
+    final QuantileSketch sketch;
+
+    PriceBucket(long start, int sketchCompression) {
+        this(start, new QuantileSketch(sketchCompression));
+    }
+
+    private PriceBucket(long start, QuantileSketch sketch) {
+        this.start = start;
+        this.sketch = sketch;
+    }
+
+    void add(long timestamp, long unitPriceMinor, int quantity) {
+        if (timestamp < openTime) {
+            openTime = timestamp;
+            open = unitPriceMinor;
+        }
+        if (timestamp >= closeTime) {
+            closeTime = timestamp;
+            close = unitPriceMinor;
+        }
+        high = Math.max(high, unitPriceMinor);
+        low = Math.min(low, unitPriceMinor);
+        volume += quantity;
+        listings++;
+        sketch.add(unitPriceMinor, Math.max(1, quantity));
+    }
+
+    /**
+     * Dokłada kubełek z tego samego okresu (np. wczytany z dysku do kubełka z bieżącej sesji).
+     */
+    void merge(PriceBucket other) {
+        if (other.listings == 0) return;
+        if (other.openTime < openTime) {
+            openTime = other.openTime;
+            open = other.open;
+        }
+        if (other.closeTime >= closeTime) {
+            closeTime = other.closeTime;
+            close = other.close;
+        }
+        high = Math.max(high, other.high);
+        low = Math.min(low, other.low);
+        volume += other.volume;
+        listings += other.listings;
+        sketch.merge(other.sketch);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(start);
+        out.writeLong(open);
+        out.writeLong(high);
+        out.writeLong(low);
+        out.writeLong(close);
+        out.writeLong(volume);
+        out.writeLong(listings);
+        out.writeLong(openTime);
+        out.writeLong(closeTime);
+        sketch.write(out);
+    }
+
+    static PriceBucket read(DataInput in, int sketchCompression) throws IOException {
+        long start = in.readLong();
+        long open = in.readLong();
+        long high = in.readLong();
+        long low = in.readLong();
+        long close = in.readLong();
+        long volume = in.readLong();
+        long listings = in.readLong();
+        long openTime = in.readLong();
+        long closeTime = in.readLong();
+        PriceBucket bucket = new PriceBucket(start, QuantileSketch.read(in, sketchCompression));
+        bucket.open = open;
+        bucket.high = high;
+        bucket.low = low;
+        bucket.close = close;
+        bucket.volume = volume;
+        bucket.listings = listings;
+        bucket.openTime = openTime;
+        bucket.closeTime = closeTime;
+        return bucket;
+    }
+}
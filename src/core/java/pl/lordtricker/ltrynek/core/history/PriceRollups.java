@@ -0,0 +1,264 @@
+package pl.lordtricker.ltrynek.core.history;
+
+import pl.lordtricker.ltrynek.core.util.QuantileSketch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Przyrostowe agregaty cen (minuta / godzina / dzień) dla każdej pary (profil, klucz).
+ * <p>
+ * Każda obserwacja trafia od razu do kubełka każdego poziomu, więc zapytanie o zakres
+ * czyta kilkaset kubełków zamiast wszystkich ofert z historii. Kubełki minutowe i godzinowe
+ * starsze niż retencja poziomu są usuwane (zostaje po nich kubełek dzienny).
+ * Metody są synchronizowane – dane z historii wczytuje wątek w tle, nowe oferty wątek klienta.
+ * <p>
+ * Poziomy godzinowy i dzienny są zapisywane na dysk (save / load) razem z watermarkiem:
+ * obserwacje sprzed niego są już tylko w agregatach (HistoryStore usuwa je z segmentów).
+ */
+public class PriceRollups {
+    /** Zapytanie wybiera najdrobniejszy poziom, który pokrywa zakres co najwyżej tyloma kubełkami. */
+    public static final int MAX_QUERY_BUCKETS = 720;
+    private static final long EVICT_INTERVAL_MILLIS = 60_000L;
+    private static final int FILE_MAGIC = 0x4C545252; // "LTRR"
+    private static final int FILE_VERSION = 1;
+    /** Poziomy zapisywane na dysk – kubełki minutowe żyją krócej niż surowe rekordy. */
+    private static final RollupTier[] PERSISTED_TIERS = {RollupTier.HOUR, RollupTier.DAY};
+
+    private final Map<String, Map<String, Series>> profiles = new HashMap<>();
+    private final long retentionMillis;
+    private long lastEviction = Long.MIN_VALUE;
+
+    /**
+     * @param retentionMillis retencja kubełków dziennych (ta sama co historii); 0 = bez limitu
+     */
+    public PriceRollups(long retentionMillis) {
+        this.retentionMillis = retentionMillis;
+    }
+
+    public void add(HistoryRecord record) {
+        add(record, System.currentTimeMillis());
+    }
+
+    public synchronized void add(HistoryRecord record, long now) {
+        if (retentionMillis > 0 && record.timestamp < now - retentionMillis) return;
+        Series series = profiles.computeIfAbsent(record.profile, k -> new HashMap<>())
+                .computeIfAbsent(record.key, k -> new Series());
+        for (RollupTier tier : RollupTier.values()) {
+            long start = tier.bucketStart(record.timestamp);
+            if (!tier.retains(start, now)) continue;
+            series.tiers.get(tier)
+                    .computeIfAbsent(start, s -> new PriceBucket(s, tier.sketchCompression))
+                    .add(record.timestamp, record.unitPriceMinor, record.quantity);
+        }
+        if (now - lastEviction >= EVICT_INTERVAL_MILLIS) {
+            evict(now);
+        }
+    }
+
+    /**
+     * Usuwa kubełki, które wypadły z okna retencji swojego poziomu.
+     */
+    public synchronized void evict(long now) {
+        lastEviction = now;
+        for (Map<String, Series> keys : profiles.values()) {
+            keys.values().removeIf(series -> {
+                boolean empty = true;
+                for (RollupTier tier : RollupTier.values()) {
+                    long limit = tier == RollupTier.DAY ? retentionMillis : tier.retentionMillis;
+                    NavigableMap<Long, PriceBucket> buckets = series.tiers.get(tier);
+                    if (limit > 0) {
+                        buckets.headMap(tier.bucketStart(now - limit), false).clear();
+                    }
+                    empty &= buckets.isEmpty();
+                }
+                return empty;
+            });
+        }
+        profiles.values().removeIf(Map::isEmpty);
+    }
+
+    /**
+     * Podsumowanie cen klucza w zakresie [from, to]. Granice są zaokrąglane do kubełków
+     * wybranego poziomu. Zwraca null, jeśli w zakresie nie ma żadnej obserwacji.
+     */
+    public RollupSummary summarize(String profile, String key, long from, long to) {
+        return summarize(profile, key, from, to, System.currentTimeMillis());
+    }
+
+    public synchronized RollupSummary summarize(String profile, String key, long from, long to, long now) {
+        Map<String, Series> keys = profiles.get(profile);
+        Series series = keys == null ? null : keys.get(key);
+        if (series == null || to < from) return null;
+
+        RollupTier tier = chooseTier(from, to, now);
+        NavigableMap<Long, PriceBucket> range = series.tiers.get(tier)
+                .subMap(tier.bucketStart(from), true, tier.bucketStart(to), true);
+        if (range.isEmpty()) return null;
+
+        QuantileSketch sketch = new QuantileSketch(RollupTier.DAY.sketchCompression * 2);
+        long high = Long.MIN_VALUE;
+        long low = Long.MAX_VALUE;
+        long volume = 0;
+        long listings = 0;
+        for (PriceBucket bucket : range.values()) {
+            high = Math.max(high, bucket.high);
+            low = Math.min(low, bucket.low);
+            volume += bucket.volume;
+            listings += bucket.listings;
+            sketch.merge(bucket.sketch);
+        }
+        double last = sketch.getTotalWeight() - 1;
+        double[] quartiles = sketch.valuesAtRanks(new double[]{last * 0.25, last * 0.5, last * 0.75});
+        return new RollupSummary(tier, range.size(), from, to,
+                range.firstEntry().getValue().open, high, low, range.lastEntry().getValue().close,
+                volume, listings,
+                Math.round(quartiles[0]), Math.round(quartiles[1]), Math.round(quartiles[2]));
+    }
+
+    /**
+     * Najdrobniejszy poziom, który ma jeszcze dane od początku zakresu i nie przekracza
+     * MAX_QUERY_BUCKETS kubełków.
+     */
+    static RollupTier chooseTier(long from, long to, long now) {
+        for (RollupTier tier : RollupTier.values()) {
+            long buckets = (tier.bucketStart(to) - tier.bucketStart(from)) / tier.bucketMillis + 1;
+            if (tier.retains(tier.bucketStart(from), now) && buckets <= MAX_QUERY_BUCKETS) {
+                return tier;
+            }
+        }
+        return RollupTier.DAY;
+    }
+
+    /**
+     * Klucze z agregatami w danym profilu (np. do podpowiedzi komendy).
+     */
+    public synchronized List<String> keys(String profile) {
+        Map<String, Series> keys = profiles.get(profile);
+        return keys == null ? new ArrayList<>() : new ArrayList<>(keys.keySet());
+    }
+
+    public synchronized void clear() {
+        profiles.clear();
+    }
+
+    /**
+     * Dokłada kubełki innych agregatów (np. wczytanych z dysku) do bieżących.
+     */
+    public synchronized void merge(PriceRollups other) {
+        synchronized (other) {
+            for (Map.Entry<String, Map<String, Series>> profile : other.profiles.entrySet()) {
+                Map<String, Series> keys = profiles.computeIfAbsent(profile.getKey(), k -> new HashMap<>());
+                for (Map.Entry<String, Series> key : profile.getValue().entrySet()) {
+                    Series series = keys.computeIfAbsent(key.getKey(), k -> new Series());
+                    for (RollupTier tier : RollupTier.values()) {
+                        TreeMap<Long, PriceBucket> buckets = series.tiers.get(tier);
+                        for (PriceBucket bucket : key.getValue().tiers.get(tier).values()) {
+                            buckets.computeIfAbsent(bucket.start, s -> new PriceBucket(s, tier.sketchCompression))
+                                    .merge(bucket);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Zapisuje poziomy godzinowy i dzienny (plik tymczasowy + atomowa podmiana).
+     *
+     * @param watermark czas, przed którym wszystkie obserwacje są już w tych agregatach
+     */
+    public synchronized void save(Path file, long watermark, long now) throws IOException {
+        evict(now);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(watermark);
+            out.writeInt(profiles.size());
+            for (Map.Entry<String, Map<String, Series>> profile : profiles.entrySet()) {
+                out.writeUTF(profile.getKey());
+                out.writeInt(profile.getValue().size());
+                for (Map.Entry<String, Series> key : profile.getValue().entrySet()) {
+                    out.writeUTF(key.getKey());
+                    for (RollupTier tier : PERSISTED_TIERS) {
+                        TreeMap<Long, PriceBucket> buckets = key.getValue().tiers.get(tier);
+                        out.writeInt(buckets.size());
+                        for (PriceBucket bucket : buckets.values()) {
+                            bucket.write(out);
+                        }
+                    }
+                }
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Wczytuje agregaty zapisane przez save (dokładając je do bieżących).
+     *
+     * @return watermark pliku albo Long.MIN_VALUE, jeśli pliku nie ma lub jest nieczytelny
+     */
+    public long load(Path file) {
+        PriceRollups loaded = new PriceRollups(retentionMillis);
+        long watermark;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                System.err.println("Pomijam nieznany plik agregatów " + file.getFileName());
+                return Long.MIN_VALUE;
+            }
+            watermark = in.readLong();
+            int profileCount = in.readInt();
+            for (int p = 0; p < profileCount; p++) {
+                Map<String, Series> keys = loaded.profiles.computeIfAbsent(in.readUTF(), k -> new HashMap<>());
+                int keyCount = in.readInt();
+                for (int k = 0; k < keyCount; k++) {
+                    Series series = keys.computeIfAbsent(in.readUTF(), s -> new Series());
+                    for (RollupTier tier : PERSISTED_TIERS) {
+                        int bucketCount = in.readInt();
+                        for (int b = 0; b < bucketCount; b++) {
+                            PriceBucket bucket = PriceBucket.read(in, tier.sketchCompression);
+                            series.tiers.get(tier).put(bucket.start, bucket);
+                        }
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return Long.MIN_VALUE;
+        } catch (IOException e) {
+            System.err.println("Błąd odczytu agregatów " + file.getFileName() + ": " + e.getMessage());
+            return Long.MIN_VALUE;
+        }
+        merge(loaded);
+        return watermark;
+    }
+
+    private static class Series {
+        final Map<RollupTier, TreeMap<Long, PriceBucket>> tiers = new EnumMap<>(RollupTier.class);
+
+        Series() {
+            for (RollupTier tier : RollupTier.values()) {
+                tiers.put(tier, new TreeMap<>());
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pl.lordtricker.ltrynek.core.history;
+
+/**
+ * Wynik zapytania o zakres czasu: OHLC, wolumen i kwartyle ceny za sztukę (w groszach),
+ * policzone z kubełków jednego poziomu.
+ */
+public class RollupSummary {
+    public final RollupTier tier;
+    public final int buckets;
+    public final long from;
+    public final long to;
+    public final long open;
+    public final long high;
+    public final long low;
+    public final long close;
+    public final long volume;
+    public final long listings;
+    public final long quartile1;
+    public final long median;
+    public final long quartile3;
+
+    RollupSummary(RollupTier tier, int buckets, long from, long to, long open, long high, long low, long close,
+                  long volume, long listings, long quartile1, long median, long quartile3) {
+        this.tier = tier;
+        this.buckets = buckets;
+        this.from = from;
+        this.to = to;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.listings = listings;
+        this.quartile1 = quartile1;
+        this.median = median;
+        this.quartile3 = quartile3;
+    }
+}
@@ -0,0 +1,36 @@
+package pl.lordtricker.ltrynek.core.history;
+
+/**
+ * Poziomy agregacji cen: im starsze dane, tym grubsze kubełki.
+ * Kubełki minutowe i godzinowe są usuwane po czasie retencji – zostają po nich kubełki dzienne.
+ */
+public enum RollupTier {
+    MINUTE(60_000L, 24L * 60 * 60 * 1000, 16),
+    HOUR(60L * 60 * 1000, 30L * 24 * 60 * 60 * 1000, 32),
+    DAY(24L * 60 * 60 * 1000, 0, 64);
+
+    public final long bucketMillis;
+    /** Jak długo trzymane są kubełki tego poziomu; 0 = tak długo jak historia. */
+    public final long retentionMillis;
+    final int sketchCompression;
+
+    RollupTier(long bucketMillis, long retentionMillis, int sketchCompression) {
+        this.bucketMillis = bucketMillis;
+        this.retentionMillis = retentionMillis;
+        this.sketchCompression = sketchCompression;
+    }
+
+    /**
+     * Początek kubełka zawierającego podany czas (kubełki dzienne liczone w UTC).
+     */
+    public long bucketStart(long timestamp) {
+        return Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+    }
+
+    /**
+     * Czy kubełek o danym początku jest jeszcze w oknie retencji tego poziomu.
+     */
+    boolean retains(long bucketStart, long now) {
+        return retentionMillis == 0 || bucketStart + bucketMillis > now - retentionMillis;
+    }
+}
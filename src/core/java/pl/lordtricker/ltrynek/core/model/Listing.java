@@ -0,0 +1,25 @@
+package pl.lordtricker.ltrynek.core.model;
+
+import pl.lordtricker.ltrynek.core.util.EnchantSet;
+
+import java.util.List;
+
+/**
+ * Oferta z rynku w postaci niezależnej od Minecrafta: nazwa i linie lore bez kolorów,
+ * id materiału (np. "minecraft:diamond_sword"), enchanty i liczba sztuk w stacku.
+ */
+public class Listing {
+    public final String name;
+    public final List<String> loreLines;
+    public final String materialId;
+    public final EnchantSet enchants;
+    public final int count;
+
+    public Listing(String name, List<String> loreLines, String materialId, EnchantSet enchants, int count) {
+        this.name = name;
+        this.loreLines = loreLines;
+        this.materialId = materialId;
+        this.enchants = enchants == null ? EnchantSet.EMPTY : enchants;
+        this.count = count;
+    }
+}
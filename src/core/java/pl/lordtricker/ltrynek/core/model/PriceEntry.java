@@ -0,0 +1,20 @@
+package pl.lordtricker.ltrynek.core.model;
+
+public class PriceEntry {
+    public String name;
+    public String lore;
+    public String material;
+    /** Cena maksymalna w groszach (Money); w plikach JSON i CSV zapisywana w walucie serwera. */
+    public long maxPrice;
+    public String enchants;
+
+    public PriceEntry copy() {
+        PriceEntry copy = new PriceEntry();
+        copy.name = name;
+        copy.lore = lore;
+        copy.material = material;
+        copy.maxPrice = maxPrice;
+        copy.enchants = enchants;
+        return copy;
+    }
+}
\ No newline at end of file
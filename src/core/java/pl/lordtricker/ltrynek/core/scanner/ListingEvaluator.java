@@ -0,0 +1,62 @@
+package pl.lordtricker.ltrynek.core.scanner;
+
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.Money;
+import pl.lordtricker.ltrynek.core.util.PriceFormatter;
+
+import java.util.regex.Matcher;
+
+/**
+ * Ocena oferty bez Minecrafta: cena z lore regexem profilu, cena za sztukę,
+ * dopasowanie do listy cen i kolor podświetlenia zależny od tego, jak tania jest oferta.
+ */
+public class ListingEvaluator {
+
+    public static ScanVerdict evaluate(Listing listing, ScanRules rules, PriceMatcher matcher) {
+        if (rules == null || rules.lorePattern == null) return ScanVerdict.NONE;
+
+        long foundPrice = findPrice(listing, rules);
+        if (foundPrice < 0) return ScanVerdict.NONE;
+
+        int stackSize = listing.count;
+        boolean isStack = stackSize > 1;
+        long finalPrice = Money.perUnit(foundPrice, stackSize);
+
+        PriceEntry matchedEntry = matcher.findMatch(listing);
+        if (matchedEntry == null) {
+            return new ScanVerdict(foundPrice, finalPrice, stackSize, null, 0, false);
+        }
+
+        long maxPrice = matchedEntry.maxPrice;
+        if (finalPrice <= maxPrice) {
+            double ratio = maxPrice > 0 ? (double) finalPrice / maxPrice : 0.0;
+            if (ratio > 1.0) ratio = 1.0;
+            double alphaF = 1.0 - 0.75 * ratio;
+            if (alphaF < 0.30) alphaF = 0.30;
+            int computedAlpha = (int) (alphaF * 255.0) & 0xFF;
+            int baseRGB = isStack ? (rules.highlightColorStack & 0x00FFFFFF) : (rules.highlightColor & 0x00FFFFFF);
+            int dynamicColor = (computedAlpha << 24) | baseRGB;
+            return new ScanVerdict(foundPrice, finalPrice, stackSize, matchedEntry, dynamicColor, true);
+        }
+
+        return new ScanVerdict(foundPrice, finalPrice, stackSize, matchedEntry, 0, false);
+    }
+
+    /**
+     * Pierwsza linia lore, w której regex profilu znajdzie poprawną cenę (w groszach); -1, jeśli żadna.
+     * Cena jest parsowana wprost z linii, bez wycinania grupy do nowego Stringa.
+     */
+    public static long findPrice(Listing listing, ScanRules rules) {
+        for (String plain : listing.loreLines) {
+            Matcher m = rules.lorePattern.matcher(plain);
+            if (m.find() && m.start(1) >= 0) {
+                long parsedPrice = PriceFormatter.parsePrice(plain, m.start(1), m.end(1));
+                if (parsedPrice >= 0) {
+                    return parsedPrice;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,16 @@
+package pl.lordtricker.ltrynek.core.scanner;
+
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+
+/**
+ * Źródło wpisów listy cen dla oceny oferty – w grze ClientPriceListManager,
+ * w benchmarkach i testach dowolny MatchIndex.
+ */
+@FunctionalInterface
+public interface PriceMatcher {
+    /**
+     * Zwraca pierwszy pasujący wpis albo null.
+     */
+    PriceEntry findMatch(Listing listing);
+}
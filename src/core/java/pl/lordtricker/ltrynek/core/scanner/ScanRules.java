@@ -0,0 +1,73 @@
+package pl.lordtricker.ltrynek.core.scanner;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Część profilu serwera potrzebna do oceny ofert: skompilowany loreRegex
+ * i kolory podświetlenia w ARGB.
+ */
+public class ScanRules {
+    private static final int DEFAULT_COLOR = 0xFF80FF00;
+    private static final int DEFAULT_COLOR_STACK = 0xFFFF8000;
+
+    /** null, jeśli loreRegex jest niepoprawny – profil wtedy niczego nie skanuje. */
+    public final Pattern lorePattern;
+    public final int highlightColor;
+    public final int highlightColorStack;
+
+    public ScanRules(Pattern lorePattern, int highlightColor, int highlightColorStack) {
+        this.lorePattern = lorePattern;
+        this.highlightColor = highlightColor;
+        this.highlightColorStack = highlightColorStack;
+    }
+
+    /**
+     * Kompiluje ustawienia profilu; błędy są logowane, a w ich miejsce trafiają wartości domyślne.
+     */
+    public static ScanRules compile(String profileName, String loreRegex, String highlightColor, String highlightColorStack) {
+        String colorStackStr = (highlightColorStack == null || highlightColorStack.isEmpty())
+                ? highlightColor
+                : highlightColorStack;
+        return new ScanRules(
+                compileLoreRegex(profileName, loreRegex),
+                parseColor(highlightColor, DEFAULT_COLOR),
+                parseColor(colorStackStr, DEFAULT_COLOR_STACK));
+    }
+
+    private static Pattern compileLoreRegex(String profileName, String loreRegex) {
+        if (loreRegex == null || loreRegex.isEmpty()) {
+            return null;
+        }
+        try {
+            Pattern pattern = Pattern.compile(loreRegex);
+            if (pattern.matcher("").groupCount() < 1) {
+                System.err.println("loreRegex w profilu " + profileName + " nie ma grupy z ceną.");
+                return null;
+            }
+            return pattern;
+        } catch (PatternSyntaxException e) {
+            System.err.println("Niepoprawny loreRegex w profilu " + profileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int parseColor(String colorStr, int fallback) {
+        if (colorStr == null) {
+            return fallback;
+        }
+        if (colorStr.startsWith("#")) {
+            colorStr = colorStr.substring(1);
+        }
+        if (colorStr.length() == 6) {
+            colorStr = "FF" + colorStr;
+        }
+        try {
+            long argb = Long.parseLong(colorStr, 16);
+            return (int) (argb & 0xFFFFFFFF);
+        } catch (NumberFormatException e) {
+            System.err.println("Niepoprawny kolor '" + colorStr + "' – używam domyślnego.");
+            return fallback;
+        }
+    }
+}
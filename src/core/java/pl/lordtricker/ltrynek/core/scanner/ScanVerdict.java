@@ -0,0 +1,34 @@
+package pl.lordtricker.ltrynek.core.scanner;
+
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+
+/**
+ * Wynik oceny jednej oferty: sparsowana cena, cena za sztukę (obie w groszach),
+ * dopasowany wpis z listy cen oraz kolor podświetlenia (ARGB).
+ */
+public class ScanVerdict {
+    /**
+     * Brak oferty (pusty slot, brak ceny w lore albo brak aktywnego profilu).
+     */
+    public static final ScanVerdict NONE = new ScanVerdict(-1, -1, 0, null, 0, false);
+
+    public final long price;
+    public final long unitPrice;
+    public final int stackSize;
+    public final PriceEntry matchedEntry;
+    public final int highlightColor;
+    public final boolean highlighted;
+
+    public ScanVerdict(long price, long unitPrice, int stackSize, PriceEntry matchedEntry, int highlightColor, boolean highlighted) {
+        this.price = price;
+        this.unitPrice = unitPrice;
+        this.stackSize = stackSize;
+        this.matchedEntry = matchedEntry;
+        this.highlightColor = highlightColor;
+        this.highlighted = highlighted;
+    }
+
+    public boolean hasPrice() {
+        return price >= 0;
+    }
+}
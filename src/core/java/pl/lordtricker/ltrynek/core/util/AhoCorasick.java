@@ -0,0 +1,173 @@
+package pl.lordtricker.ltrynek.core.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Automat Aho-Corasick – jedno przejście po tekście zwraca wszystkie wzorce,
+ * które występują w nim jako podciąg. Wzorce muszą być niepuste i już znormalizowane
+ * (np. małe litery), automat porównuje znaki dokładnie.
+ */
+public final class AhoCorasick {
+    private static final long EMPTY = -1L;
+
+    private final int[] fail;
+    private final int[] dictLink;
+    private final int[] outHead;
+    private final int[] outPattern;
+    private final int[] outNext;
+
+    // Przejścia (stan, znak) -> stan w tablicy z adresowaniem otwartym
+    private final long[] transKeys;
+    private final int[] transValues;
+    private final int transMask;
+
+    private AhoCorasick(List<Map<Character, Integer>> children, List<List<Integer>> outputs) {
+        int stateCount = children.size();
+        int transitionCount = 0;
+        int outputCount = 0;
+        for (int s = 0; s < stateCount; s++) {
+            transitionCount += children.get(s).size();
+            outputCount += outputs.get(s).size();
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(4, transitionCount * 2 + 1) - 1) << 1;
+        this.transKeys = new long[capacity];
+        this.transValues = new int[capacity];
+        this.transMask = capacity - 1;
+        Arrays.fill(transKeys, EMPTY);
+        for (int s = 0; s < stateCount; s++) {
+            for (Map.Entry<Character, Integer> e : children.get(s).entrySet()) {
+                putTransition(s, e.getKey(), e.getValue());
+            }
+        }
+
+        this.outHead = new int[stateCount];
+        this.outPattern = new int[outputCount];
+        this.outNext = new int[outputCount];
+        Arrays.fill(outHead, -1);
+        int o = 0;
+        for (int s = 0; s < stateCount; s++) {
+            for (int patternId : outputs.get(s)) {
+                outPattern[o] = patternId;
+                outNext[o] = outHead[s];
+                outHead[s] = o++;
+            }
+        }
+
+        this.fail = new int[stateCount];
+        this.dictLink = new int[stateCount];
+        Arrays.fill(dictLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : children.get(0).values()) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> e : children.get(state).entrySet()) {
+                char c = e.getKey();
+                int child = e.getValue();
+                int f = fail[state];
+                int next = transition(f, c);
+                while (next < 0 && f != 0) {
+                    f = fail[f];
+                    next = transition(f, c);
+                }
+                fail[child] = next < 0 ? 0 : next;
+                int failState = fail[child];
+                dictLink[child] = outHead[failState] >= 0 ? failState : dictLink[failState];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Buduje automat. Identyfikatorem wzorca jest jego indeks na liście.
+     */
+    public static AhoCorasick build(List<String> patterns) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        children.add(new HashMap<>());
+        outputs.add(new ArrayList<>());
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("Pusty wzorzec o indeksie " + id);
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(c, next);
+                    children.add(new HashMap<>());
+                    outputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            outputs.get(state).add(id);
+        }
+        return new AhoCorasick(children, outputs);
+    }
+
+    /**
+     * Przechodzi raz po tekście i zgłasza identyfikator każdego znalezionego wystąpienia wzorca.
+     * Ten sam wzorzec może zostać zgłoszony kilka razy.
+     */
+    public void search(CharSequence text, IntConsumer sink) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next = transition(state, c);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = transition(state, c);
+            }
+            state = next < 0 ? 0 : next;
+            int out = outHead[state] >= 0 ? state : dictLink[state];
+            while (out >= 0) {
+                for (int o = outHead[out]; o >= 0; o = outNext[o]) {
+                    sink.accept(outPattern[o]);
+                }
+                out = dictLink[out];
+            }
+        }
+    }
+
+    private void putTransition(int state, char c, int target) {
+        long key = ((long) state << 16) | c;
+        int slot = mix(key) & transMask;
+        while (transKeys[slot] != EMPTY) {
+            slot = (slot + 1) & transMask;
+        }
+        transKeys[slot] = key;
+        transValues[slot] = target;
+    }
+
+    private int transition(int state, char c) {
+        long key = ((long) state << 16) | c;
+        int slot = mix(key) & transMask;
+        while (true) {
+            long k = transKeys[slot];
+            if (k == key) {
+                return transValues[slot];
+            }
+            if (k == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & transMask;
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,212 @@
+package pl.lordtricker.ltrynek.core.util;
+
+public class ColorStripUtils {
+    /**
+     * Płaska tablica znak -> znak (małe fonty, indeksy, kółka, pełna szerokość).
+     * Znaki bez mapowania wskazują same na siebie.
+     */
+    private static final char[] SMALL_FONT_MAP = new char[Character.MAX_VALUE + 1];
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            SMALL_FONT_MAP[c] = (char) c;
+        }
+        map("ᴀʙᴄᴅᴇꜰɢʜɪᴊᴋʟᴍɴᴏᴘʀѕᴛᴜᴡʏᴢꜱғᴌᴠ", "abcdefghijklmnoprstuwyzsfłv");
+        map("ᵃᵇᶜᵈᵉᶠᵍʰᶦʲᵏˡᵐⁿᵒᵖʳˢᵗᵘᵛʷˣʸᶻ", "abcdefghijklmnoprstuvwxyz");
+        map("ⓐⓑⓒⓓⓔⓕⓖⓗⓘⓙⓚⓛⓜⓝⓞⓟⓠⓡⓢⓣⓤⓥⓦⓧⓨⓩ", "abcdefghijklmnopqrstuvwxyz");
+        map("⁰¹²³⁴⁵⁶⁷⁸⁹₀₁₂₃₄₅₆₇₈₉", "01234567890123456789");
+        map("０１２３４５６７８９⓪①②③④⑤⑥⑦⑧⑨", "01234567890123456789");
+    }
+
+    private static void map(String from, String to) {
+        if (from.length() != to.length()) {
+            throw new IllegalStateException("Niezgodna długość mapowania: " + from);
+        }
+        for (int i = 0; i < from.length(); i++) {
+            SMALL_FONT_MAP[from.charAt(i)] = to.charAt(i);
+        }
+    }
+
+    /**
+     * Bufor roboczy wielokrotnego użytku (osobny dla każdego wątku).
+     */
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
+    /**
+     * Usuwa kody kolorów i formatowania, zamieniając wcześniej małe fonty na zwykłe litery.
+     * <p>
+     * Wynik jest taki sam jak przy kolejnym stosowaniu wyrażeń:
+     * 1. małe fonty, 2. §[0-9a-fk-or], 3. §x(§[0-9a-f]){6}, 4. &lt;gradient:...&gt; i &lt;/gradient&gt;,
+     * 5. &lt;#RRGGBB&gt;, &lt;##RRGGBB&gt; oraz &amp;#RRGGBB – ale bez regexów i bez pośrednich Stringów.
+     * Mapowanie fontów i kody § to jedno przejście; pozostałe formy są usuwane w miejscu
+     * i tylko wtedy, gdy w tekście w ogóle wystąpił ich znak początkowy (§, &lt; lub &amp;).
+     */
+    public static String stripAllColorsAndFormats(String input) {
+        if (input == null || input.isEmpty()) return "";
+        int length = input.length();
+        char[] buf = BUFFER.get();
+        if (buf.length < length) {
+            buf = new char[Math.max(length, buf.length * 2)];
+            BUFFER.set(buf);
+        }
+
+        // 1+2. Małe fonty i standardowe kody kolorów (np. §a) w jednym przejściu
+        int len = 0;
+        boolean sawSection = false;
+        boolean sawAngle = false;
+        boolean sawAmp = false;
+        for (int i = 0; i < length; i++) {
+            char c = SMALL_FONT_MAP[input.charAt(i)];
+            if (c == '§') {
+                if (i + 1 < length && isFormatCode(SMALL_FONT_MAP[input.charAt(i + 1)])) {
+                    i++;
+                    continue;
+                }
+                sawSection = true;
+            } else if (c == '<') {
+                sawAngle = true;
+            } else if (c == '&') {
+                sawAmp = true;
+            }
+            buf[len++] = c;
+        }
+
+        // 3. Sekwencje hex typu §x§R§R§G§G§B§B
+        if (sawSection) {
+            len = removeSectionHex(buf, len);
+        }
+        // 4-5. Formy <gradient:...>, </gradient>, <#RRGGBB>, <##RRGGBB>
+        if (sawAngle) {
+            len = removeGradientOpen(buf, len);
+            len = removeGradientClose(buf, len);
+            len = removeAngleHex(buf, len, false);
+            len = removeAngleHex(buf, len, true);
+        }
+        // 5. Forma &#RRGGBB
+        if (sawAmp) {
+            len = removeAmpHex(buf, len);
+        }
+
+        int start = 0;
+        while (start < len && buf[start] <= ' ') start++;
+        while (len > start && buf[len - 1] <= ' ') len--;
+        return new String(buf, start, len - start);
+    }
+
+    private static boolean isFormatCode(char c) {
+        return (c >= '0' && c <= '9')
+                || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                || (c >= 'k' && c <= 'o') || (c >= 'K' && c <= 'O')
+                || c == 'r' || c == 'R';
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isHexRun(char[] buf, int from, int len, int count) {
+        if (from + count > len) return false;
+        for (int i = from; i < from + count; i++) {
+            if (!isHex(buf[i])) return false;
+        }
+        return true;
+    }
+
+    private static boolean regionMatchesIgnoreCase(char[] buf, int from, int len, String lowerText) {
+        if (from + lowerText.length() > len) return false;
+        for (int i = 0; i < lowerText.length(); i++) {
+            char c = buf[from + i];
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+            if (c != lowerText.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // §x(§[0-9A-Fa-f]){6}
+    private static int removeSectionHex(char[] buf, int len) {
+        int out = 0;
+        int i = 0;
+        while (i < len) {
+            if (buf[i] == '§' && i + 14 <= len && buf[i + 1] == 'x') {
+                boolean match = true;
+                for (int k = 0; k < 6 && match; k++) {
+                    match = buf[i + 2 + 2 * k] == '§' && isHex(buf[i + 3 + 2 * k]);
+                }
+                if (match) {
+                    i += 14;
+                    continue;
+                }
+            }
+            buf[out++] = buf[i++];
+        }
+        return out;
+    }
+
+    // (?i)<gradient:[^>]*>
+    private static int removeGradientOpen(char[] buf, int len) {
+        int out = 0;
+        int i = 0;
+        while (i < len) {
+            if (buf[i] == '<' && regionMatchesIgnoreCase(buf, i + 1, len, "gradient:")) {
+                int end = i + 10;
+                while (end < len && buf[end] != '>') end++;
+                if (end < len) {
+                    i = end + 1;
+                    continue;
+                }
+            }
+            buf[out++] = buf[i++];
+        }
+        return out;
+    }
+
+    // (?i)</gradient>
+    private static int removeGradientClose(char[] buf, int len) {
+        int out = 0;
+        int i = 0;
+        while (i < len) {
+            if (buf[i] == '<' && regionMatchesIgnoreCase(buf, i + 1, len, "/gradient>")) {
+                i += 11;
+                continue;
+            }
+            buf[out++] = buf[i++];
+        }
+        return out;
+    }
+
+    // (?i)<#?[0-9A-F]{6}> albo (?i)<##[0-9A-F]{6}>
+    private static int removeAngleHex(char[] buf, int len, boolean doubleHash) {
+        int out = 0;
+        int i = 0;
+        while (i < len) {
+            if (buf[i] == '<') {
+                int hexStart = i + 1;
+                if (doubleHash) {
+                    hexStart = (i + 2 < len && buf[i + 1] == '#' && buf[i + 2] == '#') ? i + 3 : -1;
+                } else if (hexStart < len && buf[hexStart] == '#') {
+                    hexStart++;
+                }
+                if (hexStart > 0 && isHexRun(buf, hexStart, len, 6) && hexStart + 6 < len && buf[hexStart + 6] == '>') {
+                    i = hexStart + 7;
+                    continue;
+                }
+            }
+            buf[out++] = buf[i++];
+        }
+        return out;
+    }
+
+    // (?i)&#[0-9A-F]{6}
+    private static int removeAmpHex(char[] buf, int len) {
+        int out = 0;
+        int i = 0;
+        while (i < len) {
+            if (buf[i] == '&' && i + 1 < len && buf[i + 1] == '#' && isHexRun(buf, i + 2, len, 6)) {
+                i += 8;
+                continue;
+            }
+            buf[out++] = buf[i++];
+        }
+        return out;
+    }
+}
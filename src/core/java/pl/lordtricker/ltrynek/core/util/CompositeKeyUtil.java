@@ -1,6 +1,6 @@
-package pl.lordtricker.ltrynek.client.util;
+package pl.lordtricker.ltrynek.core.util;
 
-import pl.lordtricker.ltrynek.client.config.PriceEntry;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -1,9 +1,11 @@
-package pl.lordtricker.ltrynek.client.util;
+package pl.lordtricker.ltrynek.core.util;
 
 import java.util.HashMap;
 import java.util.Map;
 
 public class EnchantMapper {
+    public static final String UNKNOWN = "unknown";
+
     private static final Map<String, String> pre120Map = new HashMap<>();
     private static final Map<String, String> post121Map = new HashMap<>();
 
@@ -116,11 +118,11 @@ public class EnchantMapper {
         }
         String mapped;
         if (post121) {
-            mapped = post121Map.getOrDefault(baseName, "unknown");
+            mapped = post121Map.getOrDefault(baseName, UNKNOWN);
         } else {
-            mapped = pre120Map.getOrDefault(baseName, "unknown");
+            mapped = pre120Map.getOrDefault(baseName, UNKNOWN);
         }
-        if (!mapped.equals("unknown") && !levelPart.isEmpty()) {
+        if (!mapped.equals(UNKNOWN) && !levelPart.isEmpty()) {
             return mapped + levelPart;
         }
         return mapped;
@@ -0,0 +1,76 @@
+package pl.lordtricker.ltrynek.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wymagania enchantów z wpisu listy (np. "sharp5,unbr3+") skompilowane do sprawdzenia
+ * podzbioru na EnchantSet. Kolejność enchantów nie ma znaczenia.
+ * <p>
+ * - "sharp"   – dowolny poziom,
+ * - "sharp5"  – dokładnie poziom 5 (nie pasuje do sharp10),
+ * - "sharp5+" – poziom 5 lub wyższy.
+ * Nazwy są mapowane przez EnchantMapper, więc "sharpness5" znaczy to samo co "sharp5".
+ */
+public final class EnchantRequirement {
+    private final int[] aliasIds;
+    private final int[] minLevels;
+    private final int[] maxLevels;
+
+    private EnchantRequirement(int[] aliasIds, int[] minLevels, int[] maxLevels) {
+        this.aliasIds = aliasIds;
+        this.minLevels = minLevels;
+        this.maxLevels = maxLevels;
+    }
+
+    /**
+     * Kompiluje wymagania; zwraca null dla pustego opisu (brak wymagań).
+     */
+    public static EnchantRequirement compile(String descriptor) {
+        if (descriptor == null || descriptor.isBlank()) return null;
+        List<int[]> parts = new ArrayList<>();
+        for (String token : descriptor.split(",")) {
+            String t = token.trim().toLowerCase();
+            if (t.isEmpty()) continue;
+            boolean atLeast = t.endsWith("+");
+            if (atLeast) {
+                t = t.substring(0, t.length() - 1).trim();
+            }
+            int split = t.length();
+            while (split > 0 && Character.isDigit(t.charAt(split - 1))) split--;
+            if (split == 0) continue;
+            String name = t.substring(0, split);
+            String alias = EnchantMapper.mapEnchant(name, true);
+            if (EnchantMapper.UNKNOWN.equals(alias) && !EnchantMapper.UNKNOWN.equals(name)) {
+                alias = name;
+            }
+            int min = 1;
+            int max = Integer.MAX_VALUE;
+            if (split < t.length()) {
+                min = EnchantSet.parseLevel(t.substring(split));
+                max = atLeast ? Integer.MAX_VALUE : min;
+            }
+            parts.add(new int[]{EnchantSet.idOf(alias), min, max});
+        }
+        if (parts.isEmpty()) return null;
+        int[] ids = new int[parts.size()];
+        int[] mins = new int[parts.size()];
+        int[] maxs = new int[parts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = parts.get(i)[0];
+            mins[i] = parts.get(i)[1];
+            maxs[i] = parts.get(i)[2];
+        }
+        return new EnchantRequirement(ids, mins, maxs);
+    }
+
+    public boolean matches(EnchantSet enchants) {
+        for (int i = 0; i < aliasIds.length; i++) {
+            int level = enchants.level(aliasIds[i]);
+            if (level < minLevels[i] || level > maxLevels[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,134 @@
+package pl.lordtricker.ltrynek.core.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Zwarty zbiór enchantów przedmiotu: alias EnchantMapper -> poziom.
+ * Aliasy są internowane do małych liczb, a poziomy trzymane w tablicy indeksowanej
+ * tym numerem, więc sprawdzenie poziomu to jeden odczyt z tablicy.
+ */
+public final class EnchantSet {
+    private static final Map<String, Integer> ALIAS_IDS = new HashMap<>();
+    private static volatile String[] aliases = new String[0];
+
+    public static final EnchantSet EMPTY = new EnchantSet(new int[0], new int[0]);
+
+    private final int[] ids;
+    private final int[] levels;
+    private final int[] levelById;
+
+    private EnchantSet(int[] ids, int[] levels) {
+        this.ids = ids;
+        this.levels = levels;
+        int maxId = -1;
+        for (int id : ids) {
+            maxId = Math.max(maxId, id);
+        }
+        this.levelById = new int[maxId + 1];
+        for (int i = 0; i < ids.length; i++) {
+            levelById[ids[i]] = Math.max(levelById[ids[i]], levels[i]);
+        }
+    }
+
+    /**
+     * Zwraca stały numer aliasu (np. "sharp"), nadając nowy przy pierwszym użyciu.
+     */
+    public static synchronized int idOf(String alias) {
+        Integer id = ALIAS_IDS.get(alias);
+        if (id == null) {
+            id = aliases.length;
+            ALIAS_IDS.put(alias, id);
+            String[] grown = Arrays.copyOf(aliases, id + 1);
+            grown[id] = alias;
+            aliases = grown;
+        }
+        return id;
+    }
+
+    /**
+     * Parsuje opis w formacie "sharp5,unbr3" (taki jak w lore i composite key).
+     */
+    public static EnchantSet parse(String descriptor) {
+        if (descriptor == null || descriptor.isEmpty()) return EMPTY;
+        Builder builder = new Builder();
+        for (String token : descriptor.split(",")) {
+            String t = token.trim().toLowerCase();
+            int split = t.length();
+            while (split > 0 && Character.isDigit(t.charAt(split - 1))) split--;
+            if (split == 0) continue;
+            int level = split < t.length() ? parseLevel(t.substring(split)) : 1;
+            builder.add(t.substring(0, split), level);
+        }
+        return builder.build();
+    }
+
+    static int parseLevel(String digits) {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Poziom enchantu o podanym numerze aliasu albo 0, jeśli go nie ma.
+     */
+    public int level(int aliasId) {
+        return aliasId < levelById.length ? levelById[aliasId] : 0;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    /**
+     * Opis w formacie "sharp5,unbr3" – dla nieznanych enchantów bez poziomu ("unknown").
+     */
+    public String describe() {
+        if (ids.length == 0) return "";
+        String[] names = aliases;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) sb.append(',');
+            String alias = names[ids[i]];
+            sb.append(alias);
+            if (!EnchantMapper.UNKNOWN.equals(alias)) {
+                sb.append(levels[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+
+    public static final class Builder {
+        private int[] ids = new int[4];
+        private int[] levels = new int[4];
+        private int count = 0;
+
+        public Builder add(String alias, int level) {
+            return addId(idOf(alias), level);
+        }
+
+        public Builder addId(int aliasId, int level) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                levels = Arrays.copyOf(levels, count * 2);
+            }
+            ids[count] = aliasId;
+            levels[count] = level;
+            count++;
+            return this;
+        }
+
+        public EnchantSet build() {
+            if (count == 0) return EMPTY;
+            return new EnchantSet(Arrays.copyOf(ids, count), Arrays.copyOf(levels, count));
+        }
+    }
+}
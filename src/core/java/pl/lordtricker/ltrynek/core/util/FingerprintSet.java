@@ -0,0 +1,127 @@
+package pl.lordtricker.ltrynek.core.util;
+
+/**
+ * Ograniczony zbiór 64-bitowych odcisków ofert (open addressing na tablicach prymitywów, bez obiektów).
+ * <p>
+ * Po przekroczeniu pojemności usuwany jest najdawniej widziany odcisk (LRU – każde trafienie
+ * odświeża wpis, więc oferta, która wciąż jest na ekranie, nie wypada ze zbioru),
+ * a przy ttlMillis > 0 odcisk dodany dawniej niż TTL temu liczy się ponownie.
+ */
+public final class FingerprintSet {
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final long ttlMillis;
+    /** Numer wpisu + 1 (0 = pusty slot tablicy). */
+    private final int[] table;
+    private final int mask;
+
+    // wpisy i lista LRU po ich numerach: head = najdawniej widziany, tail = ostatnio widziany
+    private final long[] keys;
+    private final long[] addedAt;
+    private final int[] prev;
+    private final int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size = 0;
+
+    public FingerprintSet(int capacity, long ttlMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlMillis = ttlMillis;
+        int tableSize = Integer.highestOneBit(this.capacity * 2 - 1) << 1;
+        this.table = new int[Math.max(tableSize, 4)];
+        this.mask = table.length - 1;
+        this.keys = new long[this.capacity];
+        this.addedAt = new long[this.capacity];
+        this.prev = new int[this.capacity];
+        this.next = new int[this.capacity];
+    }
+
+    /**
+     * Dodaje odcisk; zwraca true, jeśli go nie było albo wygasł (ofertę trzeba policzyć).
+     */
+    public boolean add(long fingerprint, long nowMillis) {
+        int slot = indexOf(fingerprint);
+        if (slot >= 0) {
+            int entry = table[slot] - 1;
+            moveToTail(entry);
+            if (ttlMillis > 0 && nowMillis - addedAt[entry] >= ttlMillis) {
+                addedAt[entry] = nowMillis;
+                return true;
+            }
+            return false;
+        }
+        int entry;
+        if (size == capacity) {
+            entry = head;
+            unlink(entry);
+            delete(keys[entry]);
+        } else {
+            entry = size++;
+        }
+        keys[entry] = fingerprint;
+        addedAt[entry] = nowMillis;
+        insert(fingerprint, entry);
+        linkTail(entry);
+        return true;
+    }
+
+    private void moveToTail(int entry) {
+        if (entry == tail) return;
+        unlink(entry);
+        linkTail(entry);
+    }
+
+    private void unlink(int entry) {
+        if (prev[entry] != NONE) next[prev[entry]] = next[entry]; else head = next[entry];
+        if (next[entry] != NONE) prev[next[entry]] = prev[entry]; else tail = prev[entry];
+    }
+
+    private void linkTail(int entry) {
+        prev[entry] = tail;
+        next[entry] = NONE;
+        if (tail != NONE) next[tail] = entry; else head = entry;
+        tail = entry;
+    }
+
+    private int indexOf(long key) {
+        int i = slot(key);
+        while (table[i] != 0) {
+            if (keys[table[i] - 1] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long key, int entry) {
+        int i = slot(key);
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry + 1;
+    }
+
+    /**
+     * Usuwa klucz z przesunięciem kolejnych wpisów wstecz (bez znaczników "usunięty").
+     */
+    private void delete(long key) {
+        int i = indexOf(key);
+        if (i < 0) return;
+        int hole = i;
+        int j = (hole + 1) & mask;
+        while (table[j] != 0) {
+            int home = slot(keys[table[j] - 1]);
+            // wpis z j może przejść do dziury, jeśli jego miejsce docelowe nie leży między dziurą a j
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                table[hole] = table[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private int slot(long key) {
+        return (int) Fingerprints.finish(key) & mask;
+    }
+}
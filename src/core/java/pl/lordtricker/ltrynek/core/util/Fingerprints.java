@@ -0,0 +1,37 @@
+package pl.lordtricker.ltrynek.core.util;
+
+/**
+ * 64-bitowe odciski ofert składane z kolejnych wartości (bez tworzenia Stringów).
+ * Użycie: {@code finish(mix(mix(start(), a), b))}.
+ */
+public final class Fingerprints {
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private Fingerprints() {
+    }
+
+    public static long start() {
+        return SEED;
+    }
+
+    public static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ (value * MULTIPLIER), 27) * 0xC2B2AE3D27D4EB4FL + 0x165667B19E3779F9L;
+    }
+
+    public static long mix(long hash, double value) {
+        return mix(hash, Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Końcowe wymieszanie bitów (fmix64 z MurmurHash3).
+     */
+    public static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,231 @@
+package pl.lordtricker.ltrynek.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Indeks kryteriów dopasowania (name, lore, material, enchants) dla przedmiotów z rynku.
+ * <p>
+ * - wpisy z podanym materiałem trafiają do kubełka po materialId,
+ * - wpisy bez materiału są szukane automatem Aho-Corasick po nazwie
+ *   (nazwa ma wystąpić w nazwie przedmiotu albo w jego materialId),
+ * - lore i enchanty sprawdzamy tylko dla kandydatów zwróconych przez powyższe
+ *   (enchanty jako EnchantRequirement – porównanie poziomów, nie podciągów).
+ * <p>
+ * Semantyka jest taka sama jak przy liniowym przeglądaniu wpisów – firstMatch zwraca
+ * pierwszy (w kolejności dodania) pasujący wpis, a forEachMatch wszystkie pasujące.
+ */
+public final class MatchIndex {
+    private static final int[] NO_IDS = new int[0];
+
+    private final int size;
+    private final String[] names;
+    private final String[] lores;
+    private final EnchantRequirement[] enchants;
+
+    private final Map<String, int[]> byMaterial;
+    private final AhoCorasick nameAutomaton;
+    private final int[][] idsByNamePattern;
+    private final int[] alwaysCandidates;
+
+    private MatchIndex(Builder builder) {
+        this.size = builder.names.size();
+        this.names = builder.names.toArray(new String[0]);
+        this.lores = builder.lores.toArray(new String[0]);
+        this.enchants = builder.enchants.toArray(new EnchantRequirement[0]);
+
+        Map<String, List<Integer>> materialBuckets = new HashMap<>();
+        Map<String, List<Integer>> namePatterns = new LinkedHashMap<>();
+        List<Integer> always = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            String material = builder.materials.get(id);
+            if (!material.isEmpty()) {
+                materialBuckets.computeIfAbsent(material, k -> new ArrayList<>()).add(id);
+            } else if (names[id].isEmpty()) {
+                always.add(id);
+            } else {
+                namePatterns.computeIfAbsent(names[id], k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        this.byMaterial = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> e : materialBuckets.entrySet()) {
+            byMaterial.put(e.getKey(), toArray(e.getValue()));
+        }
+        this.idsByNamePattern = new int[namePatterns.size()][];
+        int p = 0;
+        for (List<Integer> ids : namePatterns.values()) {
+            idsByNamePattern[p++] = toArray(ids);
+        }
+        this.nameAutomaton = namePatterns.isEmpty() ? null : AhoCorasick.build(new ArrayList<>(namePatterns.keySet()));
+        this.alwaysCandidates = toArray(always);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Zwraca identyfikator pierwszego pasującego wpisu albo -1.
+     */
+    public int firstMatch(String noColorName, List<String> loreLines, String materialId, EnchantSet enchantments) {
+        if (size == 0) return -1;
+        Query query = new Query(loreLines, enchantments);
+        for (int id : candidates(noColorName, materialId)) {
+            if (query.passes(id)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Zgłasza (rosnąco) identyfikatory wszystkich pasujących wpisów – jedno przejście
+     * zamiast sprawdzania każdego wpisu osobno.
+     */
+    public void forEachMatch(String noColorName, List<String> loreLines, String materialId, EnchantSet enchantments, IntConsumer sink) {
+        if (size == 0) return;
+        Query query = new Query(loreLines, enchantments);
+        for (int id : candidates(noColorName, materialId)) {
+            if (query.passes(id)) {
+                sink.accept(id);
+            }
+        }
+    }
+
+    /**
+     * Kandydaci spełniający warunki nazwy i materiału – posortowani i bez powtórzeń.
+     */
+    private int[] candidates(String noColorName, String materialId) {
+        String lowerName = noColorName.toLowerCase();
+        String lowerMaterial = materialId.toLowerCase();
+
+        Candidates candidates = new Candidates();
+        int[] bucket = byMaterial.getOrDefault(lowerMaterial, NO_IDS);
+        for (int id : bucket) {
+            if (names[id].isEmpty() || lowerName.contains(names[id]) || lowerMaterial.contains(names[id])) {
+                candidates.add(id);
+            }
+        }
+        candidates.addAll(alwaysCandidates);
+        if (nameAutomaton != null) {
+            nameAutomaton.search(lowerName, pattern -> candidates.addAll(idsByNamePattern[pattern]));
+            nameAutomaton.search(lowerMaterial, pattern -> candidates.addAll(idsByNamePattern[pattern]));
+        }
+        return candidates.sortedUnique();
+    }
+
+    /**
+     * Warunki lore i enchantów dla jednego przedmiotu – małe litery liczone raz, leniwie.
+     */
+    private final class Query {
+        private final List<String> loreLines;
+        private final EnchantSet enchantments;
+        private String[] lowerLore;
+
+        Query(List<String> loreLines, EnchantSet enchantments) {
+            this.loreLines = loreLines;
+            this.enchantments = enchantments == null ? EnchantSet.EMPTY : enchantments;
+        }
+
+        boolean passes(int id) {
+            if (!lores[id].isEmpty()) {
+                if (lowerLore == null) lowerLore = lowerCaseAll(loreLines);
+                if (!containsInAny(lowerLore, lores[id])) return false;
+            }
+            if (enchants[id] != null && !enchants[id].matches(enchantments)) return false;
+            return true;
+        }
+    }
+
+    private static String[] lowerCaseAll(List<String> lines) {
+        String[] lower = new String[lines.size()];
+        for (int i = 0; i < lower.length; i++) {
+            lower[i] = lines.get(i).toLowerCase();
+        }
+        return lower;
+    }
+
+    private static boolean containsInAny(String[] lines, String needle) {
+        for (String line : lines) {
+            if (line.contains(needle)) return true;
+        }
+        return false;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] arr = new int[list.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = list.get(i);
+        }
+        return arr;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase();
+    }
+
+    /**
+     * Lista kandydatów zebranych podczas jednego dopasowania.
+     */
+    private static final class Candidates {
+        int[] ids = new int[16];
+        int count = 0;
+
+        void add(int id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+
+        void addAll(int[] more) {
+            for (int id : more) {
+                add(id);
+            }
+        }
+
+        int[] sortedUnique() {
+            if (count == 0) return NO_IDS;
+            Arrays.sort(ids, 0, count);
+            int unique = 1;
+            for (int i = 1; i < count; i++) {
+                if (ids[i] != ids[unique - 1]) {
+                    ids[unique++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(ids, unique);
+        }
+    }
+
+    public static final class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<String> lores = new ArrayList<>();
+        private final List<String> materials = new ArrayList<>();
+        private final List<EnchantRequirement> enchants = new ArrayList<>();
+
+        /**
+         * Dodaje kryteria i zwraca ich identyfikator (kolejny numer od 0).
+         */
+        public int add(String name, String lore, String material, String enchantments) {
+            names.add(normalize(name));
+            lores.add(normalize(lore));
+            materials.add(normalize(material));
+            enchants.add(EnchantRequirement.compile(enchantments));
+            return names.size() - 1;
+        }
+
+        public MatchIndex build() {
+            return new MatchIndex(this);
+        }
+    }
+}
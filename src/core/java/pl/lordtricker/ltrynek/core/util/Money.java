@@ -0,0 +1,29 @@
+package pl.lordtricker.ltrynek.core.util;
+
+/**
+ * Kwoty są trzymane jako long w groszach (setnych częściach waluty serwera) – sumy i porównania
+ * są dokładne, bez dryfu double. Na double przeliczamy tylko do proporcji (kolor podświetlenia)
+ * i szkicu kwantyli.
+ */
+public final class Money {
+    public static final long MINOR_UNITS = 100;
+
+    private Money() {
+    }
+
+    public static long toMinor(double price) {
+        return Math.round(price * MINOR_UNITS);
+    }
+
+    public static double toMajor(long priceMinor) {
+        return priceMinor / (double) MINOR_UNITS;
+    }
+
+    /**
+     * Cena za sztukę z ceny całego stacka, zaokrąglona do pełnego grosza.
+     */
+    public static long perUnit(long priceMinor, int count) {
+        if (count <= 1) return priceMinor;
+        return (priceMinor + count / 2) / count;
+    }
+}
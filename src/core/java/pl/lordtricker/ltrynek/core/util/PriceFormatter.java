@@ -0,0 +1,162 @@
+package pl.lordtricker.ltrynek.core.util;
+
+public class PriceFormatter {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L
+    };
+    /** Cyfry grosza (log10 Money.MINOR_UNITS). */
+    private static final int MINOR_DIGITS = 2;
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * Parsuje cenę (komenda, CSV, tekst wycięty z lore regexem profilu) do groszy.
+     * Zwraca -1, jeśli tekst nie jest ceną.
+     */
+    public static long parsePrice(CharSequence raw) {
+        return raw == null ? -1 : parsePrice(raw, 0, raw.length());
+    }
+
+    /**
+     * Jedyny parser cen, bez alokacji – czyta znaki [start, end) bezpośrednio z tekstu:
+     * - spacje (też twarde) są pomijane, obsługiwane przyrostki k/m/mld (bez względu na wielkość liter),
+     * - jeśli są i kropki, i przecinki, separatorem dziesiętnym jest ten, który występuje ostatni,
+     * - pojedyncza kropka to zawsze część dziesiętna, pojedynczy przecinek – tylko z 1-2 cyframi po nim,
+     * - powtórzony separator oddziela tysiące.
+     * Wynik jest zaokrąglany do pełnego grosza; -1 przy niepoprawnym tekście lub przepełnieniu.
+     */
+    public static long parsePrice(CharSequence raw, int start, int end) {
+        while (end > start && isSpace(raw.charAt(end - 1))) end--;
+        int exponent = 0;
+        if (endsWithIgnoreCase(raw, start, end, "mld")) {
+            exponent = 9;
+            end -= 3;
+        } else if (endsWithIgnoreCase(raw, start, end, "m")) {
+            exponent = 6;
+            end -= 1;
+        } else if (endsWithIgnoreCase(raw, start, end, "k")) {
+            exponent = 3;
+            end -= 1;
+        }
+
+        int dots = 0;
+        int commas = 0;
+        int lastDot = -1;
+        int lastComma = -1;
+        int digitsAfterLastComma = 0;
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c == '.') {
+                dots++;
+                lastDot = i;
+            } else if (c == ',') {
+                commas++;
+                lastComma = i;
+                digitsAfterLastComma = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (lastComma >= 0) digitsAfterLastComma++;
+            } else if (!isSpace(c)) {
+                return -1;
+            }
+        }
+
+        int decimalAt = -1;
+        if (dots > 0 && commas > 0) {
+            boolean dotIsDecimal = lastDot > lastComma;
+            if ((dotIsDecimal ? dots : commas) > 1) return -1;
+            decimalAt = dotIsDecimal ? lastDot : lastComma;
+        } else if (dots == 1) {
+            decimalAt = lastDot;
+        } else if (commas == 1 && digitsAfterLastComma >= 1 && digitsAfterLastComma <= 2) {
+            decimalAt = lastComma;
+        }
+
+        // grosze i przyrostek to razem "scale" cyfr po przecinku; jedna dodatkowa cyfra służy do zaokrąglenia
+        int scale = MINOR_DIGITS + exponent;
+        long mantissa = 0;
+        int significant = 0;
+        int fractionDigits = 0;
+        int roundingDigit = 0;
+        boolean fraction = false;
+        boolean anyDigit = false;
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (i == decimalAt) {
+                fraction = true;
+                continue;
+            }
+            if (c < '0' || c > '9') continue;
+            anyDigit = true;
+            int digit = c - '0';
+            if (fraction) {
+                if (fractionDigits > scale) continue;
+                if (fractionDigits++ == scale) {
+                    roundingDigit = digit;
+                    continue;
+                }
+            }
+            if ((mantissa != 0 || digit != 0) && ++significant > MAX_DIGITS) return -1;
+            mantissa = mantissa * 10 + digit;
+        }
+        if (!anyDigit) return -1;
+
+        int kept = Math.min(fractionDigits, scale);
+        long factor = POWERS_OF_TEN[scale - kept];
+        if (mantissa > Long.MAX_VALUE / factor) return -1;
+        long minor = mantissa * factor;
+        return roundingDigit >= 5 ? minor + 1 : minor;
+    }
+
+    /**
+     * Formatuje kwotę w groszach w "krótkim" formacie z przyrostkami k/m/mld,
+     * z dwoma miejscami po przecinku bez końcowych zer, np. "1.59k", "12.5m", "999".
+     */
+    public static String formatPrice(long priceMinor) {
+        boolean negative = priceMinor < 0;
+        long value = Math.abs(priceMinor);
+        String[] suffixes = {"", "k", "m", "mld"};
+        int tier = value >= 1_000_000_000_00L ? 3 : value >= 1_000_000_00L ? 2 : value >= 1_000_00L ? 1 : 0;
+        long hundredths = roundDiv(value, POWERS_OF_TEN[3 * tier]);
+        // 999.995k po zaokrągleniu to już 1m
+        if (tier < 3 && hundredths >= 1000_00L) {
+            tier++;
+            hundredths = roundDiv(value, POWERS_OF_TEN[3 * tier]);
+        }
+        return (negative ? "-" : "") + withCents(hundredths) + suffixes[tier];
+    }
+
+    /**
+     * Kwota w groszach jako zwykła liczba w walucie serwera ("1500", "1.5", "0.05") – do plików.
+     */
+    public static String formatPlain(long priceMinor) {
+        return (priceMinor < 0 ? "-" : "") + withCents(Math.abs(priceMinor));
+    }
+
+    /**
+     * Setne części jako liczba z kropką, bez końcowych zer.
+     */
+    private static String withCents(long hundredths) {
+        long whole = hundredths / 100;
+        int cents = (int) (hundredths % 100);
+        if (cents == 0) return Long.toString(whole);
+        if (cents % 10 == 0) return whole + "." + (cents / 10);
+        return whole + (cents < 10 ? ".0" : ".") + cents;
+    }
+
+    private static long roundDiv(long value, long divisor) {
+        return divisor == 1 ? value : value / divisor + (value % divisor >= (divisor + 1) / 2 ? 1 : 0);
+    }
+
+    private static boolean endsWithIgnoreCase(CharSequence raw, int start, int end, String suffix) {
+        int from = end - suffix.length();
+        if (from < start) return false;
+        for (int i = 0; i < suffix.length(); i++) {
+            if (Character.toLowerCase(raw.charAt(from + i)) != suffix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\u00A0' || c == '\u202F';
+    }
+}
@@ -0,0 +1,275 @@
+package pl.lordtricker.ltrynek.core.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Ważony szkic kwantyli (w stylu t-digest) trzymający pary (wartość, waga) w tablicach prymitywów.
+ * <p>
+ * Dopóki liczba różnych wartości mieści się w kompresji (domyślnie {@link #COMPRESSION}), szkic jest dokładny
+ * (równe ceny są sklejane w jedną parę z sumowaną wagą). Powyżej tego progu sąsiednie
+ * centroidy są scalane funkcją skali k1, więc pamięć jest stała niezależnie od liczby ofert,
+ * a dokładność najlepsza przy końcach rozkładu.
+ */
+public final class QuantileSketch {
+    public static final int COMPRESSION = 200;
+    private static final int BUFFER_CAPACITY = 256;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private double[] means = new double[INITIAL_CAPACITY];
+    private long[] weights = new long[INITIAL_CAPACITY];
+    private int centroids = 0;
+
+    private double[] scratchMeans = new double[INITIAL_CAPACITY];
+    private long[] scratchWeights = new long[INITIAL_CAPACITY];
+
+    private double[] bufferValues = new double[INITIAL_CAPACITY];
+    private long[] bufferWeights = new long[INITIAL_CAPACITY];
+    private int buffered = 0;
+
+    private final int compression;
+    private long totalWeight = 0;
+    private boolean exact = true;
+
+    public QuantileSketch() {
+        this(COMPRESSION);
+    }
+
+    /**
+     * Szkic o mniejszej kompresji zajmuje mniej pamięci kosztem dokładności (np. kubełki agregatów).
+     */
+    public QuantileSketch(int compression) {
+        this.compression = Math.max(8, compression);
+    }
+
+    public void add(double value, long weight) {
+        if (weight <= 0) return;
+        if (buffered == bufferValues.length) {
+            if (buffered >= BUFFER_CAPACITY) {
+                flush();
+            } else {
+                bufferValues = Arrays.copyOf(bufferValues, buffered * 2);
+                bufferWeights = Arrays.copyOf(bufferWeights, buffered * 2);
+            }
+        }
+        bufferValues[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+    }
+
+    /**
+     * Dokłada centroidy innego szkicu (np. przy łączeniu kubełków z kilku godzin).
+     */
+    public void merge(QuantileSketch other) {
+        other.flush();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        if (!other.exact) {
+            exact = false;
+        }
+    }
+
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * True, dopóki szkic nie musiał scalać różnych wartości (wyniki są wtedy dokładne).
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Wartości o podanych pozycjach (0..totalWeight-1) w posortowanym ciągu, w jednym przejściu.
+     * Pozycje muszą być posortowane rosnąco; wynik ma tę samą kolejność.
+     */
+    public double[] valuesAtRanks(double[] ranks) {
+        flush();
+        double[] result = new double[ranks.length];
+        if (centroids == 0) return result;
+
+        int i = 0;
+        long before = 0;
+        for (int r = 0; r < ranks.length; r++) {
+            double rank = ranks[r];
+            if (exact) {
+                while (i < centroids - 1 && before + weights[i] <= rank) {
+                    before += weights[i];
+                    i++;
+                }
+                result[r] = means[i];
+            } else {
+                // środek centroidu i leży na pozycji before + (w - 1) / 2; interpolujemy między środkami
+                while (i < centroids - 1 && center(before + weights[i], i + 1) <= rank) {
+                    before += weights[i];
+                    i++;
+                }
+                double left = center(before, i);
+                if (rank <= left || i == centroids - 1) {
+                    result[r] = means[i];
+                } else {
+                    double right = center(before + weights[i], i + 1);
+                    double t = (rank - left) / (right - left);
+                    result[r] = means[i] + t * (means[i + 1] - means[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Zapisuje centroidy (po scaleniu bufora) – np. agregaty zapisywane na dysk.
+     */
+    public void write(DataOutput out) throws IOException {
+        flush();
+        out.writeBoolean(exact);
+        out.writeInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            out.writeDouble(means[i]);
+            out.writeLong(weights[i]);
+        }
+    }
+
+    /**
+     * Odtwarza szkic zapisany przez write.
+     */
+    public static QuantileSketch read(DataInput in, int compression) throws IOException {
+        QuantileSketch sketch = new QuantileSketch(compression);
+        boolean exact = in.readBoolean();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            double mean = in.readDouble();
+            sketch.add(mean, in.readLong());
+        }
+        sketch.exact = exact;
+        return sketch;
+    }
+
+    private double center(long before, int index) {
+        return before + (weights[index] - 1) / 2.0;
+    }
+
+    /**
+     * Dokłada bufor do centroidów: sortowanie bufora, scalenie z centroidami i, jeśli trzeba, kompresja.
+     */
+    private void flush() {
+        if (buffered == 0) return;
+        sort(bufferValues, bufferWeights, 0, buffered - 1);
+
+        int capacity = centroids + buffered;
+        if (scratchMeans.length < capacity) {
+            scratchMeans = new double[capacity];
+            scratchWeights = new long[capacity];
+        }
+        double[] mergedMeans = scratchMeans;
+        long[] mergedWeights = scratchWeights;
+        int merged = 0;
+        int a = 0;
+        int b = 0;
+        while (a < centroids || b < buffered) {
+            double value;
+            long weight;
+            if (b >= buffered || (a < centroids && means[a] <= bufferValues[b])) {
+                value = means[a];
+                weight = weights[a++];
+            } else {
+                value = bufferValues[b];
+                weight = bufferWeights[b++];
+            }
+            if (merged > 0 && mergedMeans[merged - 1] == value) {
+                mergedWeights[merged - 1] += weight;
+            } else {
+                mergedMeans[merged] = value;
+                mergedWeights[merged] = weight;
+                merged++;
+            }
+        }
+        buffered = 0;
+        scratchMeans = means;
+        scratchWeights = weights;
+        means = mergedMeans;
+        weights = mergedWeights;
+        centroids = merged;
+
+        if (centroids > compression) {
+            compress();
+        }
+    }
+
+    /**
+     * Scala sąsiednie centroidy, dopóki przyrost funkcji skali k1 nie przekracza 1.
+     */
+    private void compress() {
+        exact = false;
+        double total = totalWeight;
+        int out = 0;
+        long before = 0;
+        double kLeft = scale(0, compression);
+        double mean = means[0];
+        long weight = weights[0];
+        for (int i = 1; i < centroids; i++) {
+            double qRight = (before + weight + weights[i]) / total;
+            if (scale(qRight, compression) - kLeft <= 1.0) {
+                long combined = weight + weights[i];
+                mean += (means[i] - mean) * weights[i] / combined;
+                weight = combined;
+            } else {
+                means[out] = mean;
+                weights[out] = weight;
+                out++;
+                before += weight;
+                kLeft = scale(before / total, compression);
+                mean = means[i];
+                weight = weights[i];
+            }
+        }
+        means[out] = mean;
+        weights[out] = weight;
+        centroids = out + 1;
+    }
+
+    private static double scale(double q, int compression) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1.0, Math.max(0.0, q)) - 1);
+    }
+
+    private static void sort(double[] keys, long[] values, int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            if (j - lo < hi - i) {
+                sort(keys, values, lo, j);
+                lo = i;
+            } else {
+                sort(keys, values, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) {
+                swap(keys, values, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(double[] keys, long[] values, int i, int j) {
+        double k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        long v = values[i];
+        values[i] = values[j];
+        values[j] = v;
+    }
+}
@@ -0,0 +1,89 @@
+package pl.lordtricker.ltrynek.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.lordtricker.ltrynek.core.util.ColorStripUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównanie ColorStripUtils z poprzednią implementacją opartą o replaceAll.
+ * Obie wersje dostają te same linie tooltipa; defaultProfiles mierzy tooltipy
+ * w formatach cen wszystkich domyślnych profili. Przed pomiarem setup sprawdza, że nowa
+ * wersja zwraca dla każdej linii to samo co stara – rozbieżność przerywa uruchomienie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorStripBenchmark {
+    private static final String[] TOOLTIP = {
+            "Diamentowy miecz",
+            "§6Cena: §a$1,250k",
+            "ᴄᴇɴᴀ: 100$ ᴢᴀ ꜱᴢᴛᴜᴋę",
+            "<gradient:#ff0000:#00ff00>Ostry miecz</gradient>",
+            "&#12ab3FSprzedawca: LordTricker",
+            "§x§F§F§A§B§0§0Wygasa za: 2h 15m",
+            "Kliknij, aby kupić"
+    };
+
+    private static final String[][] PROFILE_TOOLTIPS = Fixtures.DEFAULTS.servers.stream()
+            .map(server -> Fixtures.tooltip(server.profileName))
+            .toArray(String[][]::new);
+
+    @Setup(Level.Trial)
+    public void verify() {
+        for (String line : TOOLTIP) {
+            check(line);
+        }
+        for (String[] tooltip : PROFILE_TOOLTIPS) {
+            for (String line : tooltip) {
+                check(line);
+            }
+        }
+    }
+
+    private static void check(String line) {
+        String expected = LegacyColorStrip.stripAllColorsAndFormats(line);
+        String actual = ColorStripUtils.stripAllColorsAndFormats(line);
+        if (!actual.equals(expected)) {
+            throw new IllegalStateException("ColorStripUtils różni się od starej wersji dla \"" + line
+                    + "\": \"" + actual + "\" zamiast \"" + expected + "\"");
+        }
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole bh) {
+        for (String line : TOOLTIP) {
+            bh.consume(LegacyColorStrip.stripAllColorsAndFormats(line));
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        for (String line : TOOLTIP) {
+            bh.consume(ColorStripUtils.stripAllColorsAndFormats(line));
+        }
+    }
+
+    @Benchmark
+    public void defaultProfiles(Blackhole bh) {
+        for (String[] tooltip : PROFILE_TOOLTIPS) {
+            for (String line : tooltip) {
+                bh.consume(ColorStripUtils.stripAllColorsAndFormats(line));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package pl.lordtricker.ltrynek.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.lordtricker.ltrynek.core.util.CompositeKeyUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompositeKeyUtil.createCompositeKey dla wszystkich obsługiwanych formatów wejścia.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositeKeyBenchmark {
+    private static final String[] INPUTS = {
+            "minecraft:diamond_sword",
+            "[\"minecraft:netherite_pickaxe\"]",
+            "Miecz",
+            "Miecz(\"Legendarny\")",
+            "Miecz(\"Legendarny\")[\"diamond_sword\"]",
+            "Miecz(\"Legendarny\")[\"minecraft:diamond_sword\"]{\"sharp5,unbr3\"}"
+    };
+
+    @Benchmark
+    public void createCompositeKey(Blackhole bh) {
+        for (String input : INPUTS) {
+            bh.consume(CompositeKeyUtil.createCompositeKey(input));
+        }
+    }
+}
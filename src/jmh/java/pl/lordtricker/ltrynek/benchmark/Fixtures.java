@@ -0,0 +1,132 @@
+package pl.lordtricker.ltrynek.benchmark;
+
+import pl.lordtricker.ltrynek.client.config.DefaultServers;
+import pl.lordtricker.ltrynek.client.config.ServerEntry;
+import pl.lordtricker.ltrynek.client.config.ServersConfig;
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.util.EnchantSet;
+import pl.lordtricker.ltrynek.core.util.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Dane testowe benchmarków: domyślne profile z DefaultServers, tooltipy ofert
+ * w formatach tych serwerów oraz generowane listy cen.
+ */
+final class Fixtures {
+    static final ServersConfig DEFAULTS = DefaultServers.create();
+
+    static final String[] MATERIALS = {
+            "minecraft:diamond_sword", "minecraft:netherite_sword", "minecraft:diamond_pickaxe",
+            "minecraft:netherite_pickaxe", "minecraft:elytra", "minecraft:totem_of_undying",
+            "minecraft:enchanted_golden_apple", "minecraft:emerald", "minecraft:gunpowder",
+            "minecraft:diamond", "minecraft:netherite_ingot", "minecraft:enchanted_book",
+            "minecraft:shulker_box", "minecraft:beacon", "minecraft:golden_apple", "minecraft:obsidian"
+    };
+
+    static final String[] NAMES = {
+            "Miecz", "Kilof", "Klata", "Helm", "Buty", "Spodnie", "Luk", "Kusza", "Ksiega", "Zbroja"
+    };
+
+    private Fixtures() {
+    }
+
+    static ServerEntry profile(String profileName) {
+        for (ServerEntry entry : DEFAULTS.servers) {
+            if (entry.profileName.equals(profileName)) {
+                return entry;
+            }
+        }
+        throw new IllegalArgumentException("Brak domyślnego profilu " + profileName);
+    }
+
+    /**
+     * Surowy (z kolorami) tooltip oferty w formacie ceny danego profilu.
+     */
+    static String[] tooltip(String profileName) {
+        String priceLine = switch (profileName) {
+            case "minestar_boxpvp" -> "§7Cena: §a$1,250k";
+            case "anarchia_smp" -> "§8» §7Koszt: §6$12.5m";
+            case "rapy" -> "§7Cena: §e350 §7za sztukę";
+            case "pykmc" -> "&#12ab3FKwota: §a$2,5mld";
+            case "n1mc" -> "§7Cena: §a1250.50$";
+            default -> throw new IllegalArgumentException(profileName);
+        };
+        return new String[]{
+                "§bDiamentowy miecz",
+                "§9Ostrość V",
+                "§9Niezniszczalność III",
+                "",
+                "<gradient:#ff0000:#00ff00>Legendarny przedmiot</gradient>",
+                priceLine,
+                "§7Sprzedawca: §fLordTricker",
+                "§x§F§F§A§B§0§0Wygasa za: 2h 15m",
+                "§eKliknij, aby kupić"
+        };
+    }
+
+    /**
+     * Lista cen podobna do prawdziwych: domyślne wpisy profilu, potem głównie same materiały,
+     * część po nazwie, z lore i z enchantami. Wszystkie klucze są unikalne.
+     */
+    static List<PriceEntry> priceEntries(int count, long seed) {
+        Random random = new Random(seed);
+        List<PriceEntry> entries = new ArrayList<>();
+        for (ServerEntry server : DEFAULTS.servers) {
+            for (PriceEntry pe : server.prices) {
+                if (entries.size() < count && entries.stream().noneMatch(e -> e.name.equals(pe.name))) {
+                    entries.add(pe);
+                }
+            }
+        }
+        for (int i = entries.size(); i < count; i++) {
+            PriceEntry pe = new PriceEntry();
+            int kind = random.nextInt(20);
+            String material = MATERIALS[random.nextInt(MATERIALS.length)];
+            String name = NAMES[random.nextInt(NAMES.length)].toLowerCase() + " " + i;
+            if (kind < 12) {
+                pe.name = "";
+                pe.material = material;
+                pe.lore = "tier " + i;
+            } else if (kind < 17) {
+                pe.name = name;
+            } else if (kind < 19) {
+                pe.name = name;
+                pe.lore = "legendarny";
+                pe.material = material;
+            } else {
+                pe.name = name;
+                pe.material = material;
+                pe.enchants = "sharp" + (1 + random.nextInt(5)) + ",unbr3";
+            }
+            pe.maxPrice = Money.toMinor(100 + random.nextInt(1_000_000));
+            entries.add(pe);
+        }
+        return entries;
+    }
+
+    static List<Listing> listings(int count, long seed) {
+        Random random = new Random(seed);
+        List<Listing> listings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String material = MATERIALS[random.nextInt(MATERIALS.length)];
+            String name = NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(count * 4);
+            EnchantSet enchants = random.nextBoolean()
+                    ? EnchantSet.parse("sharp" + (1 + random.nextInt(5)) + ",unbr3")
+                    : EnchantSet.EMPTY;
+            List<String> lore = new ArrayList<>();
+            lore.add(name);
+            lore.add(random.nextInt(10) == 0 ? "Legendarny przedmiot" : "Tier " + random.nextInt(count * 4));
+            lore.add("Cena: $" + (100 + random.nextInt(1_000_000)));
+            lore.add("Sprzedawca: LordTricker");
+            if (!enchants.isEmpty()) {
+                lore.add(enchants.describe());
+            }
+            listings.add(new Listing(name, lore, material, enchants, random.nextInt(4) == 0 ? 64 : 1));
+        }
+        return listings;
+    }
+}
@@ -1,9 +1,12 @@
-package pl.lordtricker.ltrynek.client.util;
+package pl.lordtricker.ltrynek.benchmark;
 
 import java.util.HashMap;
 import java.util.Map;
 
-public class ColorStripUtils {
+/**
+ * Poprzednia implementacja ColorStripUtils (regexy) – punkt odniesienia dla benchmarku.
+ */
+final class LegacyColorStrip {
     private static final Map<Character, Character> SMALL_FONT_MAP = new HashMap<>() {{
         put('ᴀ', 'a'); put('ʙ', 'b'); put('ᴄ', 'c'); put('ᴅ', 'd');
         put('ᴇ', 'e'); put('ꜰ', 'f'); put('ɢ', 'g'); put('ʜ', 'h');
@@ -39,7 +42,7 @@ public class ColorStripUtils {
         put('⑧', '8'); put('⑨', '9');
     }};
 
-    public static String stripAllColorsAndFormats(String input) {
+    static String stripAllColorsAndFormats(String input) {
         if (input == null || input.isEmpty()) return "";
         // 1. Zamiana małych fontów
         input = mapSmallFont(input);
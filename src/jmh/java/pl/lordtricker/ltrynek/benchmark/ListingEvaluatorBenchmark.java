@@ -0,0 +1,68 @@
+package pl.lordtricker.ltrynek.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.lordtricker.ltrynek.client.config.ServerEntry;
+import pl.lordtricker.ltrynek.core.model.Listing;
+import pl.lordtricker.ltrynek.core.model.PriceEntry;
+import pl.lordtricker.ltrynek.core.scanner.ListingEvaluator;
+import pl.lordtricker.ltrynek.core.scanner.PriceMatcher;
+import pl.lordtricker.ltrynek.core.scanner.ScanRules;
+import pl.lordtricker.ltrynek.core.util.MatchIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pełna ocena ofert przez core (cena z lore, cena za sztukę, dopasowanie, kolor) –
+ * bez klienta i bez statycznych managerów, na regułach domyślnego profilu minestar_boxpvp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListingEvaluatorBenchmark {
+    @Param({"100", "10000"})
+    public int entries;
+
+    private ScanRules rules;
+    private PriceMatcher matcher;
+    private List<Listing> listings;
+
+    @Setup
+    public void setup() {
+        ServerEntry profile = Fixtures.profile("minestar_boxpvp");
+        rules = ScanRules.compile(profile.profileName, profile.loreRegex, profile.highlightColor, profile.highlightColorStack);
+
+        List<PriceEntry> priceEntries = Fixtures.priceEntries(entries, 42L);
+        MatchIndex.Builder builder = MatchIndex.builder();
+        for (PriceEntry pe : priceEntries) {
+            builder.add(pe.name, pe.lore, pe.material, pe.enchants);
+        }
+        MatchIndex index = builder.build();
+        matcher = listing -> {
+            int id = index.firstMatch(listing.name, listing.loreLines, listing.materialId, listing.enchants);
+            return id < 0 ? null : priceEntries.get(id);
+        };
+        listings = Fixtures.listings(54, 7L);
+    }
+
+    @Benchmark
+    public void evaluateChest(Blackhole bh) {
+        for (Listing listing : listings) {
+            bh.consume(ListingEvaluator.evaluate(listing, rules, matcher));
+        }
+    }
+}
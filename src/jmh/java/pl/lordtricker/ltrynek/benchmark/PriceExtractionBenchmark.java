@@ -0,0 +1,70 @@
+package pl.lordtricker.ltrynek.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.lordtricker.ltrynek.core.util.ColorStripUtils;
+import pl.lordtricker.ltrynek.core.util.PriceFormatter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Wyciąganie ceny z tooltipa tak jak w wątku roboczym ListingScanner: zdjęcie kolorów,
+ * lore regex domyślnego profilu i parsePrice wprost z linii (bez wycinania grupy).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceExtractionBenchmark {
+    private static final String[] RAW_PRICES = {
+            "350", "1,250k", "12.5m", "2,5mld", "1 250.50", "1,000,000", "99,99", "abc"
+    };
+
+    @Param({"minestar_boxpvp", "anarchia_smp", "rapy", "pykmc", "n1mc"})
+    public String profile;
+
+    private Pattern lorePattern;
+    private String[] tooltip;
+
+    @Setup
+    public void setup() {
+        lorePattern = Pattern.compile(Fixtures.profile(profile).loreRegex);
+        tooltip = Fixtures.tooltip(profile);
+    }
+
+    @Benchmark
+    public long extractPrice() {
+        for (String line : tooltip) {
+            String plain = ColorStripUtils.stripAllColorsAndFormats(line);
+            Matcher m = lorePattern.matcher(plain);
+            if (m.find()) {
+                long price = PriceFormatter.parsePrice(plain, m.start(1), m.end(1));
+                if (price >= 0) {
+                    return price;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public void parsePrice(Blackhole bh) {
+        for (String raw : RAW_PRICES) {
+            bh.consume(PriceFormatter.parsePrice(raw));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package pl.lordtricker.ltrynek.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.lordtricker.ltrynek.client.manager.ClientPriceListManager;
+import pl.lordtricker.ltrynek.core.model.Listing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClientPriceListManager.findMatchingPriceEntry dla listy 54 ofert (podwójna skrzynia)
+ * przy różnej liczbie wpisów w profilu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceMatchBenchmark {
+    private static final String PROFILE = "benchmark";
+
+    @Param({"10", "100", "1000", "10000"})
+    public int entries;
+
+    private List<Listing> listings;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ClientPriceListManager.clearAllProfiles();
+        ClientPriceListManager.setActiveProfile(PROFILE);
+        // jedna partia – indeks profilu powstaje od razu, mierzymy już samo dopasowanie
+        ClientPriceListManager.addPriceEntries(PROFILE, Fixtures.priceEntries(entries, 42L));
+        listings = Fixtures.listings(54, 7L);
+    }
+
+    @Benchmark
+    public void findMatchingPriceEntry(Blackhole bh) {
+        for (Listing listing : listings) {
+            bh.consume(ClientPriceListManager.findMatchingPriceEntry(
+                    listing.name, listing.loreLines, listing.materialId, listing.enchants));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pl.lordtricker.ltrynek.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.lordtricker.ltrynek.client.manager.ClientSearchListManager;
+import pl.lordtricker.ltrynek.core.util.Money;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statystyki wyszukiwania: dopisywanie ofert oraz mediana i kwartyle po nowej ofercie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+    @Param({"100", "10000"})
+    public int listings;
+
+    private long[] prices;
+    private int[] quantities;
+    private ClientSearchListManager.Stats filled;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3L);
+        prices = new long[listings];
+        quantities = new int[listings];
+        for (int i = 0; i < listings; i++) {
+            // ceny skupione wokół kilku poziomów, jak na prawdziwym rynku
+            prices[i] = Math.round(Math.exp(random.nextGaussian() * 0.5) * 100) * 10 * Money.MINOR_UNITS;
+            quantities[i] = random.nextInt(4) == 0 ? 64 : 1;
+        }
+        filled = new ClientSearchListManager.Stats();
+        for (int i = 0; i < listings; i++) {
+            filled.update(prices[i], quantities[i]);
+        }
+    }
+
+    @Benchmark
+    public ClientSearchListManager.Stats update() {
+        ClientSearchListManager.Stats stats = new ClientSearchListManager.Stats();
+        for (int i = 0; i < listings; i++) {
+            stats.update(prices[i], quantities[i]);
+        }
+        return stats;
+    }
+
+    @Benchmark
+    public void quartilesAfterUpdate(Blackhole bh) {
+        int i = next++ % listings;
+        filled.update(prices[i], quantities[i]);
+        bh.consume(filled.getQuartile1());
+        bh.consume(filled.getMedian());
+        bh.consume(filled.getQuartile3());
+    }
+}